@@ -1,12 +1,17 @@
 package com.sudicode.fb2gh.common;
 
+import com.google.common.io.CountingOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -24,7 +29,7 @@ public final class FB2GHUtils {
     /**
      * Size (in bytes) to use for file buffers.
      */
-    private static final int BUFFER_SIZE = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
 
     /**
      * This is a utility class which is not designed for instantiation.
@@ -70,27 +75,74 @@ public final class FB2GHUtils {
      * @throws IOException if an I/O error occurs
      */
     public static File createTempZipFile(final File file) throws IOException {
-        // Define buffer
-        byte[] buff = new byte[BUFFER_SIZE];
-
-        // Create zip file
         File zipFile = createTempFile(file.getName() + ".zip");
+        createZipFile(file, zipFile, Long.MAX_VALUE);
+        return zipFile;
+    }
+
+    /**
+     * Compress a single file in ZIP format, giving up as soon as the ZIP file grows past <code>maxSize</code>.
+     *
+     * @param file    The file to compress
+     * @param zipFile The ZIP file to write, which is deleted if the limit is exceeded
+     * @param maxSize Largest allowed size of the ZIP file, in bytes
+     * @return Size of the ZIP file, in bytes
+     * @throws FileTooLargeException if the ZIP file would be larger than <code>maxSize</code>
+     * @throws IOException           if an I/O error occurs
+     */
+    public static long createZipFile(final File file, final File zipFile, final long maxSize) throws IOException {
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(zipFile), BUFFER_SIZE)) {
+            return zip(in, file.getName(), out, maxSize);
+        } catch (FileTooLargeException e) {
+            Files.deleteIfExists(zipFile.toPath());
+            throw e;
+        }
+    }
 
-        // Output file to zip file
-        try (ZipOutputStream zipStream = new ZipOutputStream(new FileOutputStream(zipFile))) {
-            ZipEntry zipEntry = new ZipEntry(file.getName());
-            zipStream.putNextEntry(zipEntry);
-            try (FileInputStream fileStream = new FileInputStream(file)) {
-                int bytesRead;
-                while ((bytesRead = fileStream.read(buff)) > 0) {
-                    zipStream.write(buff, 0, bytesRead);
+    /**
+     * Compress a stream into a ZIP archive holding a single entry, in one pass. The compressed size is checked as
+     * data is written, so an oversized archive is rejected without reading the rest of the stream. Neither stream is
+     * closed.
+     *
+     * @param in        The data to compress
+     * @param entryName Name of the entry in the archive
+     * @param out       Where to write the archive
+     * @param maxSize   Largest allowed size of the archive, in bytes
+     * @return Size of the archive, in bytes
+     * @throws FileTooLargeException if the archive would be larger than <code>maxSize</code>
+     * @throws IOException           if an I/O error occurs
+     */
+    public static long zip(final InputStream in, final String entryName, final OutputStream out, final long maxSize)
+            throws IOException {
+        // Closing the ZipOutputStream releases its deflater, but must leave out open
+        CountingOutputStream counter = new CountingOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+        try (ZipOutputStream zipStream = new ZipOutputStream(counter)) {
+            zipStream.putNextEntry(new ZipEntry(entryName));
+            byte[] buff = new byte[BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buff)) >= 0) {
+                zipStream.write(buff, 0, bytesRead);
+                if (counter.getCount() > maxSize) {
+                    throw new FileTooLargeException(entryName + ".zip", maxSize);
                 }
             }
             zipStream.closeEntry();
         }
-
-        // Return zip file
-        return zipFile;
+        if (counter.getCount() > maxSize) {
+            throw new FileTooLargeException(entryName + ".zip", maxSize);
+        }
+        return counter.getCount();
     }
 
     /**
@@ -0,0 +1,33 @@
+package com.sudicode.fb2gh.common;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a file being written grows past a size limit, so that the write can be abandoned as soon as the limit
+ * is exceeded, rather than after the whole file has been written.
+ */
+public class FileTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long maxSize;
+
+    /**
+     * Constructor.
+     *
+     * @param name    Name of the file
+     * @param maxSize Size limit, in bytes
+     */
+    public FileTooLargeException(final String name, final long maxSize) {
+        super("File '" + name + "' is larger than " + maxSize + " bytes.");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return Size limit which was exceeded, in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.sudicode.fb2gh.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * A map of strings which survives restarts. Entries are held in memory, and each new entry is also appended to a file
+ * as a line of the form <code>key&lt;TAB&gt;value</code>. When the file is opened again, its entries are loaded, with
+ * later lines taking precedence over earlier ones. A line left incomplete by a crash is ignored.
+ * </p>
+ * <p>
+ * Keys and values may not contain tabs or line breaks. Instances are thread-safe.
+ * </p>
+ */
+public final class PersistentStringMap implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentStringMap.class);
+
+    private final Path file;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final BufferedWriter writer;
+
+    /**
+     * Open a map, creating the file if it does not exist.
+     *
+     * @param file The file which holds the map
+     * @throws IOException if an I/O error occurs
+     */
+    public PersistentStringMap(final Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        boolean endsWithNewline = true;
+        if (Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                endsWithNewline = channel.size() == 0 || channel.read(last, channel.size() - 1) < 1
+                        || last.get(0) == '\n';
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                // Each line is only loaded once the next one has been read, so that an incomplete last line is skipped
+                String line = reader.readLine();
+                while (line != null) {
+                    String next = reader.readLine();
+                    int tab = line.indexOf('\t');
+                    if (tab > 0 && (next != null || endsWithNewline)) {
+                        entries.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                    line = next;
+                }
+            }
+            logger.info("Loaded {} entries from '{}'", entries.size(), file);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        if (!endsWithNewline) {
+            // Start a fresh line after an incomplete one
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @param key The key
+     * @return The value stored for <code>key</code>, or <code>null</code> if there is none
+     */
+    public String get(final String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Store a value, writing it to the file immediately.
+     *
+     * @param key   The key
+     * @param value The value
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalArgumentException if <code>key</code> or <code>value</code> contains a tab or line break, or
+     *                                  <code>key</code> is empty
+     */
+    public synchronized void put(final String key, final String value) throws IOException {
+        if (key.isEmpty() || key.matches("(?s).*[\t\r\n].*") || value.matches("(?s).*[\t\r\n].*")) {
+            throw new IllegalArgumentException("Keys and values must not contain tabs or line breaks.");
+        }
+        if (value.equals(entries.get(key))) {
+            return;
+        }
+        writer.write(key);
+        writer.write('\t');
+        writer.write(value);
+        writer.write('\n');
+        writer.flush();
+        entries.put(key, value);
+    }
+
+    /**
+     * @return Number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Close the file. The map can no longer be modified afterwards.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+        logger.debug("Closed '{}'", file);
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.sudicode.fb2gh.common;
+
+import lombok.Lombok;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Iterable} which reads ahead of its consumer. Each iterator starts a single background thread that pulls
+ * elements from the source {@link Iterable} into a bounded queue, so that slow element retrieval (such as fetching
+ * cases from FogBugz) overlaps with whatever the consumer does with the previous elements. Elements are read one at
+ * a time, in order, so the source need not be thread-safe.
+ * <p>
+ * Iterators returned by this class are {@link Closeable}. An iterator shuts its background thread down once the source
+ * is exhausted; if iteration is abandoned early, the iterator should be closed. Either way, if the source iterator is
+ * {@link AutoCloseable} (such as one reading a streamed response), it is closed once the background thread has
+ * stopped reading it. If the source throws while being read, the exception is rethrown to the consumer in place of the
+ * element it failed to produce. If the consuming thread is interrupted while waiting for the next element, iteration
+ * ends early and the interrupt status is preserved.
+ *
+ * @param <T> The type of element
+ */
+public class PrefetchingIterable<T> implements Iterable<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefetchingIterable.class);
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Queue marker which indicates that the source has been exhausted.
+     */
+    private static final Object END = new Object();
+
+    /**
+     * Queue marker which stands in for a <code>null</code> element.
+     */
+    private static final Object NULL = new Object();
+
+    private final Iterable<T> source;
+    private final int lookahead;
+
+    /**
+     * Constructor.
+     *
+     * @param source    The {@link Iterable} to read ahead of
+     * @param lookahead Maximum number of elements to hold ahead of the consumer
+     * @throws IllegalArgumentException if <code>lookahead</code> is not positive
+     */
+    public PrefetchingIterable(final Iterable<T> source, final int lookahead) {
+        if (lookahead <= 0) {
+            throw new IllegalArgumentException("Lookahead must be positive.");
+        }
+        this.source = source;
+        this.lookahead = lookahead;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PrefetchingIterator();
+    }
+
+    /**
+     * Holds an exception thrown by the source, so that it can be passed through the queue.
+     */
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        /**
+         * Constructor.
+         *
+         * @param cause The exception thrown by the source
+         */
+        Failure(final Throwable cause) {
+            this.cause = cause;
+        }
+
+    }
+
+    /**
+     * Iterator which consumes the queue filled by a background thread.
+     */
+    private final class PrefetchingIterator implements Iterator<T>, Closeable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(lookahead);
+        private final Thread producer;
+        private Object next;
+        private boolean done;
+
+        /**
+         * Constructor. Starts the background thread.
+         */
+        PrefetchingIterator() {
+            producer = new Thread(this::produce, "fb2gh-prefetch-" + threadCount.incrementAndGet());
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        /**
+         * Read the source into the queue until it is exhausted, it fails, or this iterator is closed.
+         */
+        private void produce() {
+            Iterator<T> iterator = null;
+            try {
+                try {
+                    iterator = source.iterator();
+                    while (iterator.hasNext()) {
+                        T element = iterator.next();
+                        queue.put(element != null ? element : NULL);
+                    }
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable t) {
+                    logger.debug("Prefetch source failed.", t);
+                    queue.put(new Failure(t));
+                }
+            } catch (InterruptedException e) {
+                logger.debug("Prefetch thread interrupted.");
+            } finally {
+                if (iterator instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) iterator).close();
+                    } catch (Exception e) {
+                        logger.warn("Failed to close prefetch source.", e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+
+            Object element;
+            try {
+                element = queue.take();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            if (element == END) {
+                done = true;
+                return false;
+            }
+            if (element instanceof Failure) {
+                done = true;
+                throw Lombok.sneakyThrow(((Failure) element).cause);
+            }
+            next = element;
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object element = next;
+            next = null;
+            return element != NULL ? (T) element : null;
+        }
+
+        /**
+         * Stop the background thread and discard any elements which have been read ahead. The source iterator is
+         * closed by the background thread as it stops.
+         */
+        @Override
+        public void close() {
+            done = true;
+            next = null;
+            producer.interrupt();
+            queue.clear();
+        }
+
+    }
+
+}
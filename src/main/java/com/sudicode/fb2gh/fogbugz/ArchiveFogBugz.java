@@ -0,0 +1,697 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import lombok.Lombok;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>
+ * {@link FogBugz} which reads everything from an archive written by {@link FBArchiveWriter}, instead of from a
+ * FogBugz server.
+ * </p>
+ * <p>
+ * The archive is memory-mapped, so the operating system pages it in as needed rather than it being read up front.
+ * Only the index is held on the heap, as sorted arrays of case numbers and record offsets (12 bytes per case). Looking
+ * up a case is a binary search of those arrays followed by decompressing that one record; iterating over cases walks
+ * the arrays, and decompresses each case only when the iterator reaches it.
+ * </p>
+ * <p>
+ * {@link #searchCases(String)} understands lists of case numbers (<code>1,2,3</code>) and simple
+ * <code>axis:value</code> terms, which must all match. Supported axes are <code>project</code>, <code>area</code>,
+ * <code>milestone</code> (or <code>fixfor</code>), <code>category</code>, <code>status</code>,
+ * <code>assignedto</code>, <code>priority</code>, <code>customer</code>, <code>parent</code>, <code>title</code>
+ * (which matches any part of the title) and <code>lastedited</code> (which takes a
+ * <code>"yyyy-MM-dd..yyyy-MM-dd"</code> range; either end may be omitted). Values are compared case-insensitively.
+ * Field searches decompress every case.
+ * </p>
+ * <p>
+ * Instances are thread-safe. Closing an instance while other threads are reading from it makes their reads fail.
+ * </p>
+ */
+class ArchiveFogBugz implements FBArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveFogBugz.class);
+
+    /**
+     * Largest region mapped at once. Records which cross a boundary are mapped on their own.
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final Pattern TERM = Pattern.compile("(\\w+):(?:\"([^\"]*)\"|(\\S+))");
+    private static final Pattern ID_LIST = Pattern.compile("\\d+(,\\d+)*");
+    private static final Pattern DATE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})?");
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private final int[] caseIds;
+    private final long[] caseOffsets;
+    private final int[] checkinIds;
+    private final long[] checkinOffsets;
+    private final FBResponse metadata;
+    private final String authToken;
+    private volatile boolean closed;
+
+    /**
+     * Open an archive.
+     *
+     * @param file      The archive file
+     * @param authToken FogBugz API token, used to download attachments from the FogBugz instance the archive was
+     *                  written from
+     * @throws FB2GHException if the file cannot be read, or is not an archive
+     */
+    ArchiveFogBugz(final Path file, final String authToken) throws FB2GHException {
+        this.file = file;
+        this.authToken = authToken;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        } catch (IOException e) {
+            throw new FB2GHException("Could not open archive " + file, e);
+        }
+
+        try {
+            IndexBuilder cases = new IndexBuilder();
+            IndexBuilder checkins = new IndexBuilder();
+            metadata = readArchive(cases, checkins);
+            caseIds = cases.ids;
+            caseOffsets = cases.offsets;
+            checkinIds = checkins.ids;
+            checkinOffsets = checkins.offsets;
+        } catch (FB2GHException | RuntimeException e) {
+            try {
+                close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        logger.info("Opened archive {} with {} cases", file, caseIds.length);
+    }
+
+    /**
+     * Check the header, then read the index and metadata.
+     *
+     * @param cases    Receives the positions of case records, and is built before returning
+     * @param checkins Receives the positions of checkin records, and is built before returning
+     * @return The metadata
+     * @throws FB2GHException if the file is not an archive, or is corrupt
+     */
+    private FBResponse readArchive(final IndexBuilder cases, final IndexBuilder checkins) throws FB2GHException {
+        ByteBuffer header = slice(0, FBArchiveFormat.HEADER_SIZE);
+        if (!hasMagic(header) || header.getInt() != FBArchiveFormat.VERSION) {
+            throw new FB2GHException(file + " is not a FogBugz archive");
+        }
+
+        long metadataOffset = -1;
+        for (IndexEntry entry : readIndex()) {
+            switch (entry.type) {
+                case FBArchiveFormat.METADATA:
+                    metadataOffset = entry.offset;
+                    break;
+                case FBArchiveFormat.CASE:
+                    cases.add(entry.key, entry.offset);
+                    break;
+                case FBArchiveFormat.CHECKINS:
+                    checkins.add(entry.key, entry.offset);
+                    break;
+                default:
+                    logger.warn("Ignoring unknown record type {} in {}", entry.type, file);
+            }
+        }
+        cases.build();
+        checkins.build();
+        return metadataOffset >= 0 ? readRecord(metadataOffset) : new FBResponse();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Metadata, such as {@link #listProjects()}, remains available after closing, since it is held on the heap.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Arrays.fill(segments, null);
+        channel.close();
+        logger.info("Closed archive {}", file);
+    }
+
+    /**
+     * A record's type, key and position.
+     */
+    private static final class IndexEntry {
+        private final byte type;
+        private final int key;
+        private final long offset;
+
+        IndexEntry(final byte type, final int key, final long offset) {
+            this.type = type;
+            this.key = key;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Collects record positions, then sorts them by key into parallel primitive arrays. When a key occurs more than
+     * once, the last position added wins.
+     */
+    private static final class IndexBuilder {
+        private int[] ids = new int[16];
+        private long[] offsets = new long[16];
+        private int count;
+
+        void add(final int id, final long offset) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            ids[count] = id;
+            offsets[count] = offset;
+            count++;
+        }
+
+        void build() {
+            // Sort by key, then by order of addition, without boxing
+            long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = ((long) ids[i] << Integer.SIZE) | i;
+            }
+            Arrays.sort(order);
+            int[] sortedIds = new int[count];
+            long[] sortedOffsets = new long[count];
+            int unique = 0;
+            for (long entry : order) {
+                int id = (int) (entry >> Integer.SIZE);
+                long offset = offsets[(int) entry];
+                if (unique > 0 && sortedIds[unique - 1] == id) {
+                    sortedOffsets[unique - 1] = offset;
+                } else {
+                    sortedIds[unique] = id;
+                    sortedOffsets[unique] = offset;
+                    unique++;
+                }
+            }
+            ids = Arrays.copyOf(sortedIds, unique);
+            offsets = Arrays.copyOf(sortedOffsets, unique);
+        }
+    }
+
+    /**
+     * Read the index from the end of the archive, or rebuild it by scanning the records if the archive was not
+     * closed properly.
+     *
+     * @return The index entries, in the order in which the records were written
+     * @throws FB2GHException if the archive is corrupt
+     */
+    private List<IndexEntry> readIndex() throws FB2GHException {
+        List<IndexEntry> entries = new ArrayList<>();
+        if (size >= FBArchiveFormat.HEADER_SIZE + FBArchiveFormat.TRAILER_SIZE) {
+            ByteBuffer trailer = slice(size - FBArchiveFormat.TRAILER_SIZE, FBArchiveFormat.TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            if (hasMagic(trailer)) {
+                ByteBuffer count = slice(indexOffset, Integer.BYTES);
+                int entryCount = count.getInt();
+                ByteBuffer index = slice(indexOffset + Integer.BYTES,
+                        Math.multiplyExact(entryCount, FBArchiveFormat.INDEX_ENTRY_SIZE));
+                for (int i = 0; i < entryCount; i++) {
+                    entries.add(new IndexEntry(index.get(), index.getInt(), index.getLong()));
+                }
+                return entries;
+            }
+        }
+
+        logger.warn("{} has no index, scanning records", file);
+        long position = FBArchiveFormat.HEADER_SIZE;
+        while (position + FBArchiveFormat.RECORD_HEADER_SIZE <= size) {
+            ByteBuffer recordHeader = slice(position, FBArchiveFormat.RECORD_HEADER_SIZE);
+            byte type = recordHeader.get();
+            int key = recordHeader.getInt();
+            int length = recordHeader.getInt();
+            long next = position + FBArchiveFormat.RECORD_HEADER_SIZE + length;
+            if (length < 0 || next > size) {
+                logger.warn("Ignoring truncated record at offset {} of {}", position, file);
+                break;
+            }
+            entries.add(new IndexEntry(type, key, position));
+            position = next;
+        }
+        return entries;
+    }
+
+    /**
+     * Consume {@link FBArchiveFormat#MAGIC} from a buffer.
+     *
+     * @param buffer The buffer
+     * @return <code>true</code> if the next bytes were the magic bytes
+     */
+    private static boolean hasMagic(final ByteBuffer buffer) {
+        byte[] magic = new byte[FBArchiveFormat.MAGIC.length];
+        buffer.get(magic);
+        return Arrays.equals(magic, FBArchiveFormat.MAGIC);
+    }
+
+    /**
+     * Get a view of part of the archive, without copying it.
+     *
+     * @param offset Offset of the first byte
+     * @param length Number of bytes
+     * @return A buffer positioned at the first byte
+     * @throws FB2GHException if the range is outside of the archive, or cannot be mapped, or the archive is closed
+     */
+    private ByteBuffer slice(final long offset, final int length) throws FB2GHException {
+        if (closed) {
+            throw new FB2GHException("Archive " + file + " is closed");
+        }
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new FB2GHException("Corrupt archive " + file + ": no data at offset " + offset);
+        }
+        int segment = (int) (offset / SEGMENT_SIZE);
+        int start = (int) (offset % SEGMENT_SIZE);
+        if (start + (long) length <= SEGMENT_SIZE) {
+            MappedByteBuffer mapped = segments[segment];
+            if (mapped == null) {
+                // Closed by another thread since the check above
+                throw new FB2GHException("Archive " + file + " is closed");
+            }
+            ByteBuffer view = mapped.duplicate();
+            // Cast for compatibility with Java 8, where Buffer's methods do not return ByteBuffer
+            ((Buffer) view).limit(start + length);
+            ((Buffer) view).position(start);
+            return view.slice();
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException e) {
+            throw new FB2GHException("Could not read archive " + file, e);
+        }
+    }
+
+    /**
+     * Decompress and parse a record.
+     *
+     * @param offset Offset of the record
+     * @return The record contents
+     * @throws FB2GHException if the record is corrupt
+     */
+    private FBResponse readRecord(final long offset) throws FB2GHException {
+        ByteBuffer recordHeader = slice(offset, FBArchiveFormat.RECORD_HEADER_SIZE);
+        recordHeader.get();
+        recordHeader.getInt();
+        ByteBuffer data = slice(offset + FBArchiveFormat.RECORD_HEADER_SIZE, recordHeader.getInt());
+        try (InputStream in = new InflaterInputStream(new ByteBufferInputStream(data))) {
+            return (FBResponse) FBJaxb.getUnmarshaller().unmarshal(in);
+        } catch (JAXBException | IOException e) {
+            throw new FB2GHException("Corrupt archive " + file + ": bad record at offset " + offset, e);
+        }
+    }
+
+    /**
+     * Reads a {@link ByteBuffer}.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+    /**
+     * Materialize the case at a position in the index.
+     *
+     * @param index Position in {@link #caseIds}
+     * @return The case
+     * @throws FB2GHException if the record is corrupt
+     */
+    private FBCase readCase(final int index) throws FB2GHException {
+        List<FBCase> cases = readRecord(caseOffsets[index]).getCases();
+        if (cases == null || cases.isEmpty()) {
+            throw new FB2GHException("Corrupt archive " + file + ": no case in record for case " + caseIds[index]);
+        }
+        return cases.get(0);
+    }
+
+    /**
+     * Iterate over the cases at a range of positions in the index, materializing each one as it is reached.
+     *
+     * @param from First position, inclusive
+     * @param to   Last position, exclusive
+     * @return The cases
+     */
+    private Iterator<FBCase> caseIterator(final int from, final int to) {
+        return new Iterator<FBCase>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public FBCase next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return readCase(next++);
+                } catch (FB2GHException e) {
+                    // Iterator methods cannot throw checked exceptions, so rethrow as is
+                    throw Lombok.sneakyThrow(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param id A case number
+     * @return The position of the first case numbered <code>id</code> or higher
+     */
+    private int lowerBound(final int id) {
+        int index = Arrays.binarySearch(caseIds, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @param list A list, which may be <code>null</code>
+     * @param <T>  Type of the list's elements
+     * @return A modifiable copy of the list
+     */
+    private static <T> List<T> copyOf(final List<T> list) {
+        return list != null ? new ArrayList<>(list) : new ArrayList<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is the URL of the FogBugz instance the archive was written from, or an empty <code>String</code> if the
+     * archive has no metadata.
+     */
+    @Override
+    public String getBaseURL() {
+        return metadata.getBaseURL() != null ? metadata.getBaseURL() : "";
+    }
+
+    @Override
+    public String getAuthToken() {
+        return authToken;
+    }
+
+    @Override
+    public List<FBProject> listProjects() {
+        return copyOf(metadata.getProjects());
+    }
+
+    @Override
+    public List<FBMilestone> listMilestones() {
+        return copyOf(metadata.getMilestones());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As with FogBugz itself, global milestones (those which do not belong to any project) are included.
+     */
+    @Override
+    public List<FBMilestone> listMilestones(final FBProject project) {
+        return listMilestones().stream()
+                .filter(milestone -> milestone.getProjectId() == project.getId() || milestone.getProjectId() <= 0)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FBArea> listAreas() {
+        return copyOf(metadata.getAreas());
+    }
+
+    @Override
+    public List<FBArea> listAreas(final FBProject project) {
+        return listAreas().stream()
+                .filter(area -> area.getProjectId() == project.getId())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FBCategory> listCategories() {
+        return copyOf(metadata.getCategories());
+    }
+
+    @Override
+    public List<FBStatus> listStatuses() {
+        return copyOf(metadata.getStatuses());
+    }
+
+    @Override
+    public List<FBStatus> listStatuses(final FBCategory category) {
+        return listStatuses().stream()
+                .filter(status -> status.getCategoryId() == category.getId())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public FBCase getCase(final int caseId) throws FB2GHException {
+        int index = Arrays.binarySearch(caseIds, caseId);
+        if (index < 0) {
+            throw new FB2GHException("Case " + caseId + " not found");
+        }
+        return readCase(index);
+    }
+
+    @Override
+    public Iterable<FBCase> iterateCases(final int minId, final int maxId) {
+        return () -> caseIterator(lowerBound(minId), maxId == Integer.MAX_VALUE ? caseIds.length
+                : lowerBound(maxId + 1));
+    }
+
+    @Override
+    public List<FBCase> searchCases(final String query) throws FB2GHException {
+        try (Stream<FBCase> cases = streamCases(query)) {
+            return cases.collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Stream<FBCase> streamCases(final String query) throws FB2GHException {
+        String trimmed = query.trim();
+        if (ID_LIST.matcher(trimmed).matches()) {
+            List<FBCase> cases = new ArrayList<>();
+            for (String id : trimmed.split(",")) {
+                int index = Arrays.binarySearch(caseIds, Integer.parseInt(id));
+                if (index >= 0) {
+                    cases.add(readCase(index));
+                }
+            }
+            return cases.stream();
+        }
+
+        Predicate<FBCase> filter = parseQuery(trimmed);
+        return IntStream.range(0, caseIds.length)
+                .mapToObj(index -> {
+                    try {
+                        return readCase(index);
+                    } catch (FB2GHException e) {
+                        // Stream operations cannot throw checked exceptions, so rethrow as is
+                        throw Lombok.sneakyThrow(e);
+                    }
+                })
+                .filter(filter);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every case is loaded in full, so <code>columns</code> has no effect.
+     */
+    @Override
+    public Stream<FBCase> streamCases(final String query, final Set<FBColumn> columns) throws FB2GHException {
+        return streamCases(query);
+    }
+
+    /**
+     * Turn a query of <code>axis:value</code> terms into a filter.
+     *
+     * @param query The query
+     * @return A filter which accepts the cases matching every term
+     * @throws FB2GHException if the query uses syntax or an axis that is not supported
+     */
+    private static Predicate<FBCase> parseQuery(final String query) throws FB2GHException {
+        Predicate<FBCase> filter = fbCase -> true;
+        Matcher matcher = TERM.matcher(query);
+        int end = 0;
+        while (matcher.find()) {
+            if (!query.substring(end, matcher.start()).trim().isEmpty()) {
+                break;
+            }
+            String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            filter = filter.and(parseTerm(matcher.group(1).toLowerCase(Locale.ROOT), value));
+            end = matcher.end();
+        }
+        if (end == 0 || !query.substring(end).trim().isEmpty()) {
+            throw new FB2GHException("Unsupported query for archive: " + query);
+        }
+        return filter;
+    }
+
+    /**
+     * Turn a single <code>axis:value</code> term into a filter.
+     *
+     * @param axis  The axis, in lower case
+     * @param value The value
+     * @return A filter which accepts the cases matching the term
+     * @throws FB2GHException if the axis is not supported
+     */
+    private static Predicate<FBCase> parseTerm(final String axis, final String value) throws FB2GHException {
+        switch (axis) {
+            case "project":
+                return matches(FBCase::getProjectName, value);
+            case "area":
+                return matches(FBCase::getArea, value);
+            case "milestone":
+            case "fixfor":
+                return matches(FBCase::getMilestoneName, value);
+            case "category":
+                return matches(FBCase::getCategory, value);
+            case "status":
+                return matches(FBCase::getStatus, value);
+            case "assignedto":
+                return matches(FBCase::getAssignee, value);
+            case "priority":
+                return matches(FBCase::getPriority, value);
+            case "customer":
+                return matches(FBCase::getCustomer, value);
+            case "parent":
+                return matches(fbCase -> String.valueOf(fbCase.getParentCaseId()), value);
+            case "title":
+                String part = value.toLowerCase(Locale.ROOT);
+                return fbCase -> fbCase.getTitle() != null && fbCase.getTitle().toLowerCase(Locale.ROOT).contains(part);
+            case "lastedited":
+                return lastUpdatedBetween(value);
+            default:
+                throw new FB2GHException("Unsupported search axis for archive: " + axis);
+        }
+    }
+
+    /**
+     * @param property Gets a property of a case
+     * @param value    The value to compare with
+     * @return A filter which accepts cases whose property equals <code>value</code>, ignoring case
+     */
+    private static Predicate<FBCase> matches(final Function<FBCase, String> property, final String value) {
+        return fbCase -> value.equalsIgnoreCase(property.apply(fbCase));
+    }
+
+    /**
+     * @param range A range of dates, e.g. <code>2017-01-01..2017-02-01</code>. Either end may be omitted.
+     * @return A filter which accepts cases last updated within the range (inclusive)
+     * @throws FB2GHException if the range cannot be parsed
+     */
+    private static Predicate<FBCase> lastUpdatedBetween(final String range) throws FB2GHException {
+        int separator = range.indexOf("..");
+        String from = separator >= 0 ? range.substring(0, separator) : range;
+        String to = separator >= 0 ? range.substring(separator + 2) : range;
+        if (!DATE.matcher(from).matches() || !DATE.matcher(to).matches()) {
+            throw new FB2GHException("Unsupported date range for archive: " + range);
+        }
+        // Dates in ISO 8601 format sort as text, so compare the date part of each case's timestamp
+        return fbCase -> {
+            String lastUpdated = fbCase.getLastUpdated();
+            if (lastUpdated == null) {
+                return false;
+            }
+            String day = Instant.parse(lastUpdated).toString().substring(0, 10);
+            return (from.isEmpty() || day.compareTo(from) >= 0) && (to.isEmpty() || day.compareTo(to) <= 0);
+        };
+    }
+
+    @Override
+    public List<FBCheckin> listCheckins(final FBCase fbCase) throws FB2GHException {
+        int index = Arrays.binarySearch(checkinIds, fbCase.getId());
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return copyOf(readRecord(checkinOffsets[index]).getCheckins());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the checkin records in the range are read; cases are not read at all.
+     */
+    @Override
+    public Map<Integer, List<FBCheckin>> listCheckins(final int minId, final int maxId) throws FB2GHException {
+        Map<Integer, List<FBCheckin>> checkins = new TreeMap<>();
+        int index = Arrays.binarySearch(checkinIds, minId);
+        for (int i = index >= 0 ? index : -index - 1; i < checkinIds.length && checkinIds[i] <= maxId; i++) {
+            List<FBCheckin> list = readRecord(checkinOffsets[i]).getCheckins();
+            if (list != null && !list.isEmpty()) {
+                checkins.put(checkinIds[i], new ArrayList<>(list));
+            }
+        }
+        return checkins;
+    }
+
+}
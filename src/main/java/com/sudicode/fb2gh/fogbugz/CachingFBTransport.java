@@ -0,0 +1,395 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.google.common.hash.Hashing;
+import com.sudicode.fb2gh.common.AbstractBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link FBTransport} which stores raw responses on disk, so that dry runs, retries and re-runs of a migration do not
+ * download the same FogBugz data again.
+ * <p>
+ * Responses are keyed by their full URL (i.e. by command and parameters), and are considered fresh for a period of
+ * time which depends on the command. By default, metadata (<code>listProjects</code>, <code>listFixFors</code>,
+ * <code>listAreas</code>, <code>listCategories</code> and <code>listStatuses</code>) stays fresh for an hour, while
+ * <code>search</code> and <code>listCheckins</code> stay fresh for ten minutes. Other commands, including
+ * <code>logon</code>, are never cached. Error responses are never cached. Once the cache grows beyond its maximum
+ * size, the least recently used responses are evicted.
+ * <p>
+ * A response's last-modified time is when it was downloaded, and determines whether it is fresh. Its last-access time
+ * is set whenever it is served from the cache, so that recency of use carries over to later runs. On file systems
+ * which do not keep access times, responses from earlier runs are evicted in the order in which they were downloaded.
+ * <p>
+ * To instantiate, use the builder, like so:
+ * <pre>
+ * FBTransport transport = new CachingFBTransport.Builder(new HttpFBTransport.Builder().build(), cacheDir)
+ *     .maxSize(512L * 1024 * 1024)
+ *     .maxAge("search", Duration.ofHours(1))
+ *     .build();
+ * FogBugz fogBugz = FBFactory.newFogBugz(baseURL, authToken, transport);
+ * </pre>
+ * Instances are thread-safe, provided that the delegate is. The cache directory should not be shared by two instances
+ * at once.
+ */
+public class CachingFBTransport implements FBTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingFBTransport.class);
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    private static final Pattern CMD_PATTERN = Pattern.compile("[?&]cmd=([^&]*)");
+    private static final String SUFFIX = ".xml";
+
+    /**
+     * Responses no larger than this are checked for an <code>&lt;error&gt;</code> element before being cached.
+     * FogBugz error responses are tiny, so larger responses are assumed to be successful.
+     */
+    private static final int ERROR_CHECK_LIMIT = 4096;
+
+    private final FBTransport delegate;
+    private final Path directory;
+    private final long maxSize;
+    private final Duration defaultMaxAge;
+    private final Map<String, Duration> maxAges;
+
+    /**
+     * Cached entries and their sizes, in order of least recent use.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     * @throws IOException if the cache directory cannot be read
+     */
+    private CachingFBTransport(final Builder builder) throws IOException {
+        delegate = builder.delegate;
+        directory = builder.directory;
+        maxSize = builder.maxSize;
+        defaultMaxAge = builder.defaultMaxAge;
+        maxAges = new HashMap<>(builder.maxAges);
+
+        // Pick up entries from previous runs, least recently used first
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(CachingFBTransport::lastUsed));
+        for (Path file : files) {
+            long fileSize = Files.size(file);
+            entries.put(file.getFileName().toString(), fileSize);
+            size += fileSize;
+        }
+        evict();
+        logger.info("Response cache at '{}' holds {} response(s), {} byte(s)", directory, entries.size(), size);
+    }
+
+    /**
+     * Builder used to instantiate {@link CachingFBTransport}.
+     */
+    public static final class Builder extends AbstractBuilder<CachingFBTransport> {
+        private final FBTransport delegate;
+        private final Path directory;
+        private long maxSize = DEFAULT_MAX_SIZE;
+        private Duration defaultMaxAge = Duration.ZERO;
+        private final Map<String, Duration> maxAges = new HashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param delegate  The {@link FBTransport} used when a response is not cached
+         * @param directory Directory to store responses in. It will be created if it does not exist.
+         */
+        public Builder(final FBTransport delegate, final Path directory) {
+            this.delegate = delegate;
+            this.directory = directory;
+            Duration metadataAge = Duration.ofHours(1);
+            Duration caseAge = Duration.ofMinutes(10);
+            for (String cmd : new String[]{"listProjects", "listFixFors", "listAreas", "listCategories",
+                    "listStatuses"}) {
+                maxAges.put(cmd, metadataAge);
+            }
+            maxAges.put("search", caseAge);
+            maxAges.put("listCheckins", caseAge);
+        }
+
+        /**
+         * @param maxSize Maximum total size (in bytes) of the cached responses. 256 MB by default.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxSize</code> is negative
+         */
+        public Builder maxSize(final long maxSize) {
+            if (maxSize < 0) {
+                throw new IllegalArgumentException("Max size cannot be negative.");
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Set how long responses to the given command stay fresh.
+         *
+         * @param cmd    The <code>cmd</code> argument, e.g. <code>listProjects</code>
+         * @param maxAge How long responses stay fresh. {@link Duration#ZERO} disables caching for the command.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxAge</code> is negative, or <code>cmd</code> is
+         *                                  <code>logon</code>
+         */
+        public Builder maxAge(final String cmd, final Duration maxAge) {
+            if (maxAge.isNegative()) {
+                throw new IllegalArgumentException("Max age cannot be negative.");
+            }
+            if ("logon".equals(cmd)) {
+                throw new IllegalArgumentException("Logon responses cannot be cached.");
+            }
+            this.maxAges.put(cmd, maxAge);
+            return this;
+        }
+
+        /**
+         * @param defaultMaxAge How long responses stay fresh for commands which have not been configured through
+         *                      {@link #maxAge(String, Duration)}. {@link Duration#ZERO} (the default) disables caching
+         *                      for such commands.
+         * @return This object
+         * @throws IllegalArgumentException if <code>defaultMaxAge</code> is negative
+         */
+        public Builder defaultMaxAge(final Duration defaultMaxAge) {
+            if (defaultMaxAge.isNegative()) {
+                throw new IllegalArgumentException("Max age cannot be negative.");
+            }
+            this.defaultMaxAge = defaultMaxAge;
+            return this;
+        }
+
+        /**
+         * @return The {@link CachingFBTransport}
+         * @throws UncheckedIOException if the cache directory cannot be created or read
+         */
+        @Override
+        public CachingFBTransport build() {
+            try {
+                return new CachingFBTransport(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(final String url) throws IOException {
+        String cmd = getCommand(url);
+        Duration maxAge = "logon".equals(cmd) ? Duration.ZERO : maxAges.getOrDefault(cmd, defaultMaxAge);
+        if (maxAge.isZero()) {
+            return delegate.open(url);
+        }
+
+        String name = hash(url) + SUFFIX;
+        Path file = directory.resolve(name);
+        synchronized (this) {
+            if (entries.get(name) != null) {
+                if (lastModified(file).toInstant().plus(maxAge).isAfter(Instant.now())) {
+                    logger.debug("Cache hit: {}", url);
+                    touch(file);
+                    return Files.newInputStream(file);
+                }
+                remove(name);
+            }
+        }
+
+        logger.debug("Cache miss: {}", url);
+        Path temp = Files.createTempFile(directory, "response", ".tmp");
+        boolean deleteTemp = true;
+        try {
+            try (InputStream source = delegate.open(url)) {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long fileSize = Files.size(temp);
+            if (fileSize <= ERROR_CHECK_LIMIT) {
+                byte[] body = Files.readAllBytes(temp);
+                if (isError(body)) {
+                    return new ByteArrayInputStream(body);
+                }
+            }
+            if (fileSize > maxSize) {
+                // Larger than the whole cache, so serve it without caching
+                deleteTemp = false;
+                return new DeleteOnCloseInputStream(temp);
+            }
+            synchronized (this) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(name, fileSize);
+                size += fileSize - (previous != null ? previous : 0);
+                evict();
+                return Files.newInputStream(file);
+            }
+        } finally {
+            if (deleteTemp) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Remove every cached response.
+     *
+     * @throws IOException if a cached response cannot be deleted
+     */
+    public synchronized void clear() throws IOException {
+        for (String name : new ArrayList<>(entries.keySet())) {
+            remove(name);
+        }
+    }
+
+    /**
+     * Evict least recently used responses until the cache is within its maximum size.
+     *
+     * @throws IOException if a cached response cannot be deleted
+     */
+    private void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            Files.deleteIfExists(directory.resolve(eldest.getKey()));
+            logger.debug("Evicted cached response {}", eldest.getKey());
+        }
+    }
+
+    /**
+     * Remove a single cached response.
+     *
+     * @param name File name of the response
+     * @throws IOException if the response cannot be deleted
+     */
+    private void remove(final String name) throws IOException {
+        Long fileSize = entries.remove(name);
+        if (fileSize != null) {
+            size -= fileSize;
+        }
+        Files.deleteIfExists(directory.resolve(name));
+    }
+
+    /**
+     * @param body A small response
+     * @return <code>true</code> if the response is a FogBugz error
+     */
+    private static boolean isError(final byte[] body) {
+        return new String(body, StandardCharsets.UTF_8).contains("<error");
+    }
+
+    /**
+     * @param url An API URL
+     * @return The <code>cmd</code> argument of the URL, or an empty string if there is none
+     */
+    private static String getCommand(final String url) {
+        Matcher matcher = CMD_PATTERN.matcher(url);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+
+    /**
+     * @param file A file
+     * @return When the file was last modified, or the epoch if that cannot be determined
+     */
+    private static FileTime lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * @param file A file
+     * @return When the file was last accessed or modified, whichever is later, or the epoch if neither can be
+     * determined
+     */
+    private static FileTime lastUsed(final Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            FileTime accessed = attributes.lastAccessTime();
+            FileTime modified = attributes.lastModifiedTime();
+            return accessed.compareTo(modified) > 0 ? accessed : modified;
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Set a file's last-access time to now, leaving its last-modified time alone.
+     *
+     * @param file A file
+     */
+    private static void touch(final Path file) {
+        try {
+            Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                    .setTimes(null, FileTime.from(Instant.now()), null);
+        } catch (IOException e) {
+            logger.debug("Could not set access time of {}", file, e);
+        }
+    }
+
+    /**
+     * @param url A URL
+     * @return The SHA-256 hash of the URL, in hexadecimal
+     */
+    private static String hash(final String url) {
+        return Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Stream over a temporary file, which deletes the file once closed.
+     */
+    private static final class DeleteOnCloseInputStream extends FilterInputStream {
+
+        private final Path file;
+
+        /**
+         * Constructor.
+         *
+         * @param file The file to read
+         * @throws IOException if the file cannot be opened
+         */
+        DeleteOnCloseInputStream(final Path file) throws IOException {
+            super(Files.newInputStream(file));
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link FogBugz} which keeps projects, milestones, areas, categories and statuses in memory. Each list is loaded in
+ * full the first time it is needed, and is loaded again once it is older than the configured time-to-live. Filtered
+ * lookups such as {@link #listStatuses(FBCategory)} are answered from the full list, so they never reach FogBugz on
+ * their own. All other calls are forwarded as is.
+ * <p>
+ * Instances are thread-safe, provided that the delegate is.
+ */
+class CachingFogBugz extends ForwardingFogBugz {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingFogBugz.class);
+
+    private final Cached<FBProject> projects;
+    private final Cached<FBMilestone> milestones;
+    private final Cached<FBArea> areas;
+    private final Cached<FBCategory> categories;
+    private final Cached<FBStatus> statuses;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The {@link FogBugz} to load metadata from
+     * @param ttl      How long loaded metadata remains valid
+     */
+    CachingFogBugz(final FogBugz delegate, final Duration ttl) {
+        super(delegate);
+        projects = new Cached<>("projects", ttl, delegate::listProjects);
+        milestones = new Cached<>("milestones", ttl, delegate::listMilestones);
+        areas = new Cached<>("areas", ttl, delegate::listAreas);
+        categories = new Cached<>("categories", ttl, delegate::listCategories);
+        statuses = new Cached<>("statuses", ttl, delegate::listStatuses);
+    }
+
+    @Override
+    public List<FBProject> listProjects() throws FB2GHException {
+        return projects.get();
+    }
+
+    @Override
+    public List<FBMilestone> listMilestones() throws FB2GHException {
+        return milestones.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As with FogBugz itself, global milestones (those which do not belong to any project) are included.
+     */
+    @Override
+    public List<FBMilestone> listMilestones(final FBProject project) throws FB2GHException {
+        return milestones.get().stream()
+                .filter(milestone -> milestone.getProjectId() == project.getId() || milestone.getProjectId() <= 0)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FBArea> listAreas() throws FB2GHException {
+        return areas.get();
+    }
+
+    @Override
+    public List<FBArea> listAreas(final FBProject project) throws FB2GHException {
+        return areas.get().stream()
+                .filter(area -> area.getProjectId() == project.getId())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FBCategory> listCategories() throws FB2GHException {
+        return categories.get();
+    }
+
+    @Override
+    public List<FBStatus> listStatuses() throws FB2GHException {
+        return statuses.get();
+    }
+
+    @Override
+    public List<FBStatus> listStatuses(final FBCategory category) throws FB2GHException {
+        return statuses.get().stream()
+                .filter(status -> status.getCategoryId() == category.getId())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads a list of metadata.
+     *
+     * @param <T> The type of metadata
+     */
+    @FunctionalInterface
+    private interface Loader<T> {
+
+        /**
+         * @return The full list
+         * @throws FB2GHException if there is an API issue.
+         */
+        List<T> load() throws FB2GHException;
+
+    }
+
+    /**
+     * A list of metadata which is reloaded once it expires.
+     *
+     * @param <T> The type of metadata
+     */
+    private static final class Cached<T> {
+
+        private final String name;
+        private final long ttlNanos;
+        private final Loader<T> loader;
+        private List<T> value;
+        private long loadedAt;
+
+        /**
+         * Constructor.
+         *
+         * @param name   Name of the list, used for logging
+         * @param ttl    How long the list remains valid
+         * @param loader Loads the list
+         */
+        Cached(final String name, final Duration ttl, final Loader<T> loader) {
+            this.name = name;
+            this.ttlNanos = ttl.toNanos();
+            this.loader = loader;
+        }
+
+        /**
+         * @return A copy of the list, which is loaded first if it is missing or has expired
+         * @throws FB2GHException if there is an API issue.
+         */
+        synchronized List<T> get() throws FB2GHException {
+            if (value == null || System.nanoTime() - loadedAt >= ttlNanos) {
+                List<T> loaded = loader.load();
+                value = loaded != null ? new ArrayList<>(loaded) : new ArrayList<>();
+                loadedAt = System.nanoTime();
+                logger.info("Cached {} {}", value.size(), name);
+            }
+            return new ArrayList<>(value);
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A {@link FogBugz} which reads from an archive file, as opened by {@link FBFactory#openArchive(Path)}. The archive
+ * stays open until it is closed, so it should be used in a try-with-resources statement:
+ * <pre>
+ * try (FBArchive archive = FBFactory.openArchive(file)) {
+ *     new Migrator.Builder(archive, cases, repo).build().migrate();
+ * }
+ * </pre>
+ * Once closed, methods which read cases or checkins throw {@link com.sudicode.fb2gh.FB2GHException}.
+ */
+public interface FBArchive extends FogBugz, Closeable {
+
+    /**
+     * Close the archive file and drop this archive's memory mappings. The operating system releases the mapped memory
+     * once they have been garbage collected, since Java cannot unmap a file explicitly. Closing an archive more than
+     * once has no effect.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    void close() throws IOException;
+
+}
@@ -0,0 +1,91 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * Layout of a FogBugz archive, as written by {@link FBArchiveWriter}. All numbers are big-endian.
+ * </p>
+ * <pre>
+ * header  := MAGIC, version (int)
+ * record  := type (byte), key (int), length (int), data (length bytes of deflated XML)
+ * index   := count (int), count * [type (byte), key (int), offset (long)]
+ * trailer := index offset (long), MAGIC
+ * </pre>
+ * <p>
+ * Records follow the header back to back. Each record's data is a deflated {@link FBResponse}: the metadata record
+ * holds every project, milestone, area, category and status; a case record holds a single case; a checkins record
+ * holds the checkins of a single case. The key is the case number, or zero for metadata. If the same type and key
+ * occur more than once, the last record wins.
+ * </p>
+ * <p>
+ * The index and trailer are written when the archive is closed. An archive without them (e.g. because the export was
+ * interrupted) can still be read by scanning its records.
+ * </p>
+ */
+final class FBArchiveFormat {
+
+    /**
+     * Marks the start and end of an archive.
+     */
+    static final byte[] MAGIC = "FB2GHARC".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Current format version.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+
+    /**
+     * Size of a record's type, key and length, in bytes.
+     */
+    static final int RECORD_HEADER_SIZE = 1 + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * Size of an index entry, in bytes.
+     */
+    static final int INDEX_ENTRY_SIZE = 1 + Integer.BYTES + Long.BYTES;
+
+    /**
+     * Size of the trailer, in bytes.
+     */
+    static final int TRAILER_SIZE = Long.BYTES + MAGIC.length;
+
+    /**
+     * Record holding all metadata.
+     */
+    static final byte METADATA = 1;
+
+    /**
+     * Record holding a single case.
+     */
+    static final byte CASE = 2;
+
+    /**
+     * Record holding the checkins of a single case.
+     */
+    static final byte CHECKINS = 3;
+
+    /**
+     * This is a utility class which is not designed for instantiation.
+     */
+    private FBArchiveFormat() {
+        throw new AssertionError("Cannot instantiate.");
+    }
+
+    /**
+     * Combine a record type and key into a single value, for use as a map key.
+     *
+     * @param type The record type
+     * @param key  The record key
+     * @return The combined value
+     */
+    static long indexKey(final byte type, final int key) {
+        return ((long) type << Integer.SIZE) | (key & 0xFFFFFFFFL);
+    }
+
+}
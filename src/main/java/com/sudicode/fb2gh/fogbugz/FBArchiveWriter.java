@@ -0,0 +1,244 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>
+ * Writes a snapshot of a FogBugz instance to a compact local archive, so that extraction can be done once, at full
+ * speed, and a migration can then be replayed from disk as often as needed. See {@link FBFactory#openArchive(Path)}
+ * for reading the archive back.
+ * </p>
+ * <p>
+ * Each case, each case's checkins and the metadata are written as separate compressed records, one after another, as
+ * soon as they are passed in. An index of case numbers is written when the archive is closed.
+ * </p>
+ * <pre>
+ * try (FBArchiveWriter writer = new FBArchiveWriter(Paths.get("fogbugz.fbar"))) {
+ *     writer.export(fogBugz, fogBugz.iterateCases(1, 5000), true);
+ * }
+ * </pre>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ */
+public class FBArchiveWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FBArchiveWriter.class);
+
+    /**
+     * Size (in bytes) of the buffer used to write the archive.
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Number of cases whose checkins are fetched together, and between progress messages.
+     */
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final Marshaller marshaller;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final Map<Long, Long> index = new LinkedHashMap<>();
+    private long position;
+    private int caseCount;
+    private boolean closed;
+
+    /**
+     * Create a new archive, replacing any existing file.
+     *
+     * @param file The file to write to
+     * @throws FB2GHException if the file cannot be created
+     */
+    public FBArchiveWriter(final Path file) throws FB2GHException {
+        this.file = file;
+        this.marshaller = FBJaxb.newMarshaller();
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+            out.write(FBArchiveFormat.MAGIC);
+            out.writeInt(FBArchiveFormat.VERSION);
+            position = FBArchiveFormat.HEADER_SIZE;
+        } catch (IOException e) {
+            throw new FB2GHException("Could not create archive " + file, e);
+        }
+    }
+
+    /**
+     * Write every case from <code>cases</code>, preceded by all metadata and optionally followed by each case's
+     * checkins.
+     *
+     * @param fogBugz         The {@link FogBugz} to read metadata and checkins from
+     * @param cases           The cases to write, e.g. from {@link FogBugz#iterateCases(int, int)}
+     * @param includeCheckins Whether to write each case's checkins
+     * @throws FB2GHException if there is an API issue, or the archive cannot be written
+     */
+    public void export(final FogBugz fogBugz, final Iterable<FBCase> cases, final boolean includeCheckins)
+            throws FB2GHException {
+        writeMetadata(fogBugz);
+        List<FBCase> batch = new ArrayList<>(PROGRESS_INTERVAL);
+        for (FBCase fbCase : cases) {
+            writeCase(fbCase);
+            batch.add(fbCase);
+            if (batch.size() == PROGRESS_INTERVAL) {
+                finishBatch(fogBugz, batch, includeCheckins);
+            }
+        }
+        finishBatch(fogBugz, batch, includeCheckins);
+    }
+
+    /**
+     * Write the checkins of a batch of cases, which are fetched together, then report progress.
+     *
+     * @param fogBugz         The {@link FogBugz} to read checkins from
+     * @param batch           The cases written since the last batch, which is cleared afterwards
+     * @param includeCheckins Whether to write checkins
+     * @throws FB2GHException if there is an API issue, or the archive cannot be written
+     */
+    private void finishBatch(final FogBugz fogBugz, final List<FBCase> batch, final boolean includeCheckins)
+            throws FB2GHException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (includeCheckins) {
+            for (Map.Entry<Integer, List<FBCheckin>> entry : fogBugz.listCheckins(batch).entrySet()) {
+                writeCheckins(entry.getKey(), entry.getValue());
+            }
+        }
+        batch.clear();
+        logger.info("Archived {} cases ({} bytes)", caseCount, position);
+    }
+
+    /**
+     * Write every project, milestone, area, category and status, along with the base URL of the FogBugz instance,
+     * which is needed to download attachments of archived cases.
+     *
+     * @param fogBugz The {@link FogBugz} to read metadata from
+     * @throws FB2GHException if there is an API issue, or the archive cannot be written
+     */
+    public void writeMetadata(final FogBugz fogBugz) throws FB2GHException {
+        FBResponse metadata = new FBResponse();
+        metadata.setBaseURL(fogBugz.getBaseURL());
+        metadata.setProjects(fogBugz.listProjects());
+        metadata.setMilestones(fogBugz.listMilestones());
+        metadata.setAreas(fogBugz.listAreas());
+        metadata.setCategories(fogBugz.listCategories());
+        metadata.setStatuses(fogBugz.listStatuses());
+        writeRecord(FBArchiveFormat.METADATA, 0, metadata);
+    }
+
+    /**
+     * Write a single case, including its events.
+     *
+     * @param fbCase The case
+     * @throws FB2GHException if the events cannot be loaded, or the archive cannot be written
+     */
+    public void writeCase(final FBCase fbCase) throws FB2GHException {
+        fbCase.loadEvents();
+        FBResponse response = new FBResponse();
+        response.setCases(Collections.singletonList(fbCase));
+        writeRecord(FBArchiveFormat.CASE, fbCase.getId(), response);
+        caseCount++;
+    }
+
+    /**
+     * Write the checkins of a single case.
+     *
+     * @param caseId   The case number
+     * @param checkins The checkins associated with that case
+     * @throws FB2GHException if the archive cannot be written
+     */
+    public void writeCheckins(final int caseId, final List<FBCheckin> checkins) throws FB2GHException {
+        FBResponse response = new FBResponse();
+        response.setCheckins(checkins);
+        writeRecord(FBArchiveFormat.CHECKINS, caseId, response);
+    }
+
+    /**
+     * @return Number of cases written so far
+     */
+    public int getCaseCount() {
+        return caseCount;
+    }
+
+    /**
+     * Compress and append a record.
+     *
+     * @param type     The record type
+     * @param key      The record key
+     * @param response The record contents
+     * @throws FB2GHException if the contents cannot be marshalled, or the archive cannot be written
+     */
+    private void writeRecord(final byte type, final int key, final FBResponse response) throws FB2GHException {
+        if (closed) {
+            throw new IllegalStateException("Archive is closed.");
+        }
+        buffer.reset();
+        deflater.reset();
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(buffer, deflater, BUFFER_SIZE)) {
+            marshaller.marshal(response, deflated);
+        } catch (JAXBException | IOException e) {
+            throw new FB2GHException("Could not write record " + key + " to " + file, e);
+        }
+
+        try {
+            out.writeByte(type);
+            out.writeInt(key);
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            throw new FB2GHException("Could not write to " + file, e);
+        }
+        index.put(FBArchiveFormat.indexKey(type, key), position);
+        position += FBArchiveFormat.RECORD_HEADER_SIZE + buffer.size();
+    }
+
+    /**
+     * Write the index and trailer, then close the file.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long indexOffset = position;
+            out.writeInt(index.size());
+            for (Map.Entry<Long, Long> entry : index.entrySet()) {
+                long indexKey = entry.getKey();
+                out.writeByte((byte) (indexKey >>> Integer.SIZE));
+                out.writeInt((int) indexKey);
+                out.writeLong(entry.getValue());
+            }
+            out.writeLong(indexOffset);
+            out.write(FBArchiveFormat.MAGIC);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+        logger.info("Archived {} cases to {}", caseCount, file);
+    }
+
+}
@@ -1,19 +1,25 @@
 package com.sudicode.fb2gh.fogbugz;
 
+import com.sudicode.fb2gh.FB2GHException;
 import lombok.EqualsAndHashCode;
+import lombok.Lombok;
 import lombok.ToString;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * FogBugz case.
  */
 @XmlRootElement(name = "case")
-@EqualsAndHashCode
+@EqualsAndHashCode(doNotUseGetters = true, exclude = {"loadedColumns", "eventLoader"})
 @ToString(of = {"id", "title"})
 public class FBCase {
 
@@ -34,6 +40,9 @@ public class FBCase {
     private String projectName;
     private String area;
     private String customer;
+    private String lastUpdated;
+    private Set<FBColumn> loadedColumns;
+    private FBEventLoader eventLoader;
 
     FBCase() {
     }
@@ -181,9 +190,16 @@ public class FBCase {
     }
 
     /**
-     * @return All of the events for the case
+     * @return All of the events for the case. If the events were not requested when this case was searched for (see
+     * {@link FogBugz#searchCaseHeaders(String)}), they are fetched from FogBugz the first time this method is called.
      */
     public List<FBCaseEvent> getEvents() {
+        try {
+            loadEvents();
+        } catch (FB2GHException e) {
+            // Getters cannot throw checked exceptions, so rethrow as is
+            throw Lombok.sneakyThrow(e);
+        }
         return events;
     }
 
@@ -193,6 +209,54 @@ public class FBCase {
         this.events = events;
     }
 
+    /**
+     * @return <code>true</code> if the events of this case are present, without attempting to load them
+     */
+    boolean hasEvents() {
+        return events != null;
+    }
+
+    /**
+     * Fetch the events now if they are loaded on demand and have not been loaded yet.
+     *
+     * @throws FB2GHException if there is an API issue.
+     */
+    void loadEvents() throws FB2GHException {
+        if (eventLoader != null) {
+            eventLoader.load(this);
+        }
+    }
+
+    void setEventLoader(FBEventLoader eventLoader) {
+        this.eventLoader = eventLoader;
+    }
+
+    /**
+     * Get the columns which were requested when this case was searched for. Properties belonging to any other column
+     * hold default values (<code>null</code>, <code>0</code> or <code>false</code>), except for events, which are
+     * loaded on demand.
+     *
+     * @return The loaded columns. Cases which were not obtained through a column-restricted search report every
+     * column as loaded.
+     */
+    @XmlTransient
+    public Set<FBColumn> getLoadedColumns() {
+        return loadedColumns != null ? Collections.unmodifiableSet(loadedColumns) : FBColumn.all();
+    }
+
+    /**
+     * @param column A column
+     * @return <code>true</code> if the given column was requested when this case was searched for
+     * @see #getLoadedColumns()
+     */
+    public boolean isLoaded(FBColumn column) {
+        return loadedColumns == null || loadedColumns.contains(column);
+    }
+
+    void setLoadedColumns(Set<FBColumn> loadedColumns) {
+        this.loadedColumns = loadedColumns.isEmpty() ? EnumSet.noneOf(FBColumn.class) : EnumSet.copyOf(loadedColumns);
+    }
+
     /**
      * @return The Salesforce case ID of the case (Requires Salesforce plugin)
      */
@@ -253,4 +317,16 @@ public class FBCase {
         this.customer = customer;
     }
 
+    /**
+     * @return Date and time that the case was last changed in any way, in ISO 8601 UTC format
+     */
+    public String getLastUpdated() {
+        return lastUpdated;
+    }
+
+    @XmlElement(name = "dtLastUpdated")
+    void setLastUpdated(String lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
 }
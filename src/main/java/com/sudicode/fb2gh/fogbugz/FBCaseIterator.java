@@ -0,0 +1,137 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import lombok.Lombok;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pulls <code>&lt;case&gt;</code> elements out of a FogBugz search response one at a time, so that only the case
+ * currently being read is held in memory. The underlying stream is closed once the last case has been read, or when
+ * {@link #close()} is invoked.
+ */
+class FBCaseIterator implements Iterator<FBCase>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FBCaseIterator.class);
+
+    private final InputStream source;
+    private final XMLStreamReader xml;
+    private final Unmarshaller jaxb;
+    private final String url;
+    private FBCase next;
+    private boolean done;
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param source The response body
+     * @param xml    A reader over <code>source</code>
+     * @param jaxb   The {@link Unmarshaller} used to read each case
+     * @param url    The URL that the response came from, used in log and error messages
+     */
+    FBCaseIterator(final InputStream source, final XMLStreamReader xml, final Unmarshaller jaxb, final String url) {
+        this.source = source;
+        this.xml = xml;
+        this.jaxb = jaxb;
+        this.url = url;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+        try {
+            next = advance();
+        } catch (XMLStreamException | JAXBException e) {
+            close();
+            // Callers of the streaming search methods declare FB2GHException, so this is safe to do
+            throw Lombok.sneakyThrow(new FB2GHException("Could not parse " + url, e));
+        } catch (FB2GHException e) {
+            close();
+            throw Lombok.sneakyThrow(e);
+        }
+        if (next == null) {
+            logger.info("Streamed {} case(s) from {}", count, url);
+            close();
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    @Override
+    public FBCase next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FBCase fbCase = next;
+        next = null;
+        return fbCase;
+    }
+
+    /**
+     * Move the reader forward to the next <code>&lt;case&gt;</code> element and unmarshal it. After unmarshalling,
+     * the reader is already positioned on the event following the case, so the current event is always inspected
+     * before advancing.
+     *
+     * @return The next case, or <code>null</code> if the end of the document was reached
+     * @throws XMLStreamException if the response is not well-formed
+     * @throws JAXBException      if a case cannot be unmarshalled
+     * @throws FB2GHException     if the response is a FogBugz error
+     */
+    private FBCase advance() throws XMLStreamException, JAXBException, FB2GHException {
+        while (true) {
+            if (xml.isStartElement()) {
+                String name = xml.getLocalName();
+                if ("case".equals(name)) {
+                    return jaxb.unmarshal(xml, FBCase.class).getValue();
+                }
+                if ("error".equals(name)) {
+                    throw new FB2GHException(xml.getElementText());
+                }
+            }
+            if (!xml.hasNext()) {
+                return null;
+            }
+            xml.next();
+        }
+    }
+
+    /**
+     * Release the underlying stream. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        if (done) {
+            return;
+        }
+        done = true;
+        next = null;
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            logger.warn("Failed to close XML reader for " + url, e);
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close " + url, e);
+        }
+    }
+
+}
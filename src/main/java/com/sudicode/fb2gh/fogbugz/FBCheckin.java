@@ -14,12 +14,25 @@ import javax.xml.bind.annotation.XmlRootElement;
 @ToString
 public class FBCheckin {
 
+    private int caseId;
     private int revisionNumber;
     private String filename;
 
     FBCheckin() {
     }
 
+    /**
+     * @return The number of the case which the checkin is associated with.
+     */
+    public int getCaseId() {
+        return caseId;
+    }
+
+    @XmlElement(name = "ixBug")
+    void setCaseId(int caseId) {
+        this.caseId = caseId;
+    }
+
     /**
      * @return The post-checkin revision number.
      */
@@ -0,0 +1,131 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A column which can be requested when searching for cases. Each column corresponds to one or more {@link FBCase}
+ * properties. The case number is always returned, and is therefore not listed here.
+ *
+ * @see FogBugz#searchCases(String, Set)
+ */
+public enum FBColumn {
+
+    /**
+     * {@link FBCase#getParentCaseId()}.
+     */
+    PARENT_CASE_ID("ixBugParent"),
+
+    /**
+     * {@link FBCase#isOpen()} and {@link FBCase#isClosed()}.
+     */
+    OPEN("fOpen"),
+
+    /**
+     * {@link FBCase#getTitle()}.
+     */
+    TITLE("sTitle"),
+
+    /**
+     * {@link FBCase#getAssignee()}.
+     */
+    ASSIGNEE("sPersonAssignedTo"),
+
+    /**
+     * {@link FBCase#getStatus()}.
+     */
+    STATUS("sStatus"),
+
+    /**
+     * {@link FBCase#getDuplicateOfId()}.
+     */
+    DUPLICATE_OF_ID("ixBugOriginal"),
+
+    /**
+     * {@link FBCase#getPriority()}.
+     */
+    PRIORITY("sPriority"),
+
+    /**
+     * {@link FBCase#getMilestoneId()}.
+     */
+    MILESTONE_ID("ixFixFor"),
+
+    /**
+     * {@link FBCase#getMilestoneName()}.
+     */
+    MILESTONE_NAME("sFixFor"),
+
+    /**
+     * {@link FBCase#getCategory()}.
+     */
+    CATEGORY("sCategory"),
+
+    /**
+     * {@link FBCase#getEvents()}. Usually by far the largest column.
+     */
+    EVENTS("events"),
+
+    /**
+     * {@link FBCase#getSalesforceCaseId()} (Requires Salesforce plugin).
+     */
+    SALESFORCE_CASE_ID("plugin_customfields_at_fogcreek_com_scasexxs01"),
+
+    /**
+     * {@link FBCase#getProjectId()}.
+     */
+    PROJECT_ID("ixProject"),
+
+    /**
+     * {@link FBCase#getProjectName()}.
+     */
+    PROJECT_NAME("sProject"),
+
+    /**
+     * {@link FBCase#getArea()}.
+     */
+    AREA("sArea"),
+
+    /**
+     * {@link FBCase#getCustomer()} (Requires Salesforce plugin).
+     */
+    CUSTOMER("plugin_customfields_at_fogcreek_com_customery84"),
+
+    /**
+     * {@link FBCase#getLastUpdated()}.
+     */
+    LAST_UPDATED("dtLastUpdated");
+
+    private final String apiName;
+
+    /**
+     * Constructor.
+     *
+     * @param apiName Name of the column in the FogBugz API
+     */
+    FBColumn(final String apiName) {
+        this.apiName = apiName;
+    }
+
+    /**
+     * @return Name of the column in the FogBugz API
+     */
+    public String getApiName() {
+        return apiName;
+    }
+
+    /**
+     * @return Every column, i.e. what {@link FogBugz#searchCases(String)} requests.
+     */
+    public static Set<FBColumn> all() {
+        return EnumSet.allOf(FBColumn.class);
+    }
+
+    /**
+     * @return Every column except {@link #EVENTS}, i.e. what {@link FogBugz#searchCaseHeaders(String)} requests.
+     */
+    public static Set<FBColumn> headers() {
+        return EnumSet.complementOf(EnumSet.of(EVENTS));
+    }
+
+}
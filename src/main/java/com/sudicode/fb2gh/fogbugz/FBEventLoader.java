@@ -0,0 +1,79 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Loads events on demand for the cases returned by a single header search. When the events of one case are requested,
+ * the events of the cases which follow it in the search results are loaded in the same request, since cases are
+ * usually processed in order.
+ */
+class FBEventLoader {
+
+    private final FogBugzImpl fogBugz;
+    private final List<FBCase> cases;
+    private final Map<FBCase, Integer> positions = new IdentityHashMap<>();
+    private final int batchSize;
+
+    /**
+     * Constructor.
+     *
+     * @param fogBugz   The {@link FogBugzImpl} to load events from
+     * @param cases     The cases returned by the search, in order
+     * @param batchSize Maximum number of cases to load events for in one request
+     */
+    private FBEventLoader(final FogBugzImpl fogBugz, final List<FBCase> cases, final int batchSize) {
+        this.fogBugz = fogBugz;
+        this.cases = cases;
+        this.batchSize = batchSize;
+        for (int i = 0; i < cases.size(); i++) {
+            positions.put(cases.get(i), i);
+        }
+    }
+
+    /**
+     * Make each of the given cases load its events on demand, through a loader shared by all of them.
+     *
+     * @param fogBugz   The {@link FogBugzImpl} to load events from
+     * @param cases     The cases returned by the search, in order
+     * @param batchSize Maximum number of cases to load events for in one request
+     */
+    static void attach(final FogBugzImpl fogBugz, final List<FBCase> cases, final int batchSize) {
+        FBEventLoader loader = new FBEventLoader(fogBugz, cases, batchSize);
+        cases.forEach(fbCase -> fbCase.setEventLoader(loader));
+    }
+
+    /**
+     * Ensure that the events of the given case have been loaded. Does nothing if they already have been.
+     *
+     * @param fbCase The case
+     * @throws FB2GHException if there is an API issue.
+     */
+    synchronized void load(final FBCase fbCase) throws FB2GHException {
+        if (fbCase.hasEvents()) {
+            return;
+        }
+
+        // Collect this case, along with the next few cases that still need events
+        List<FBCase> batch = new ArrayList<>();
+        for (int i = positions.get(fbCase); i < cases.size() && batch.size() < batchSize; i++) {
+            if (!cases.get(i).hasEvents()) {
+                batch.add(cases.get(i));
+            }
+        }
+
+        // Fetch and distribute
+        String ids = batch.stream().map(c -> String.valueOf(c.getId())).collect(Collectors.joining(","));
+        Map<Integer, List<FBCaseEvent>> events = fogBugz.searchEvents(ids);
+        for (FBCase c : batch) {
+            List<FBCaseEvent> caseEvents = events.get(c.getId());
+            c.setEvents(caseEvents != null ? caseEvents : new ArrayList<>());
+        }
+    }
+
+}
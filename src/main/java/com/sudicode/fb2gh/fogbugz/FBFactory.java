@@ -2,6 +2,9 @@ package com.sudicode.fb2gh.fogbugz;
 
 import com.sudicode.fb2gh.FB2GHException;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 /**
  * <p>
  * This factory uses the <a href="http://help.fogcreek.com/the-fogbugz-api">FogBugz API</a> to interact with a given
@@ -18,6 +21,8 @@ import com.sudicode.fb2gh.FB2GHException;
  * FogBugz fb = FBFactory.newFogBugz(baseURL, email, password);
  * </pre>
  * After instantiating, you may then use <code>fb.getAuthToken();</code> to obtain a valid API token for later.
+ * <p>
+ * The {@link FogBugz} instances created here are safe to share between threads.
  */
 public class FBFactory {
 
@@ -55,4 +60,80 @@ public class FBFactory {
         return new FogBugzImpl(baseURL, email, password);
     }
 
+    /**
+     * Create a new {@link FogBugz} which performs API calls through the given {@link FBTransport}.
+     *
+     * @param baseURL   The FogBugz URL
+     * @param authToken FogBugz API token
+     * @param transport The {@link FBTransport} to use, e.g. a configured {@link HttpFBTransport}
+     * @return The {@link FogBugz}
+     * @throws FB2GHException if there is an API issue.
+     */
+    public static FogBugz newFogBugz(final String baseURL, final String authToken, final FBTransport transport)
+            throws FB2GHException {
+        return new FogBugzImpl(baseURL, authToken, transport);
+    }
+
+    /**
+     * Create a new {@link FogBugz} from the given email and password, which performs API calls through the given
+     * {@link FBTransport}.
+     *
+     * @param baseURL   The FogBugz URL
+     * @param email     FogBugz email
+     * @param password  FogBugz password
+     * @param transport The {@link FBTransport} to use, e.g. a configured {@link HttpFBTransport}
+     * @return The {@link FogBugz}
+     * @throws FB2GHException if there is an API issue.
+     */
+    public static FogBugz newFogBugz(final String baseURL, final String email, final String password,
+                                     final FBTransport transport) throws FB2GHException {
+        return new FogBugzImpl(baseURL, email, password, transport);
+    }
+
+    /**
+     * Wrap a {@link FogBugz} so that projects, milestones, areas, categories and statuses are only loaded once per
+     * <code>ttl</code>, rather than on every call. Filtered lookups, such as
+     * {@link FogBugz#listStatuses(FBCategory)}, are answered from the cached full lists. This is useful when those
+     * lookups are made once per case, e.g. from an {@link com.sudicode.fb2gh.migrate.FBCaseLabeler}.
+     *
+     * @param fogBugz The {@link FogBugz} to wrap
+     * @param ttl     How long loaded metadata remains valid before it is loaded again
+     * @return The wrapping {@link FogBugz}
+     */
+    public static FogBugz newCachingFogBugz(final FogBugz fogBugz, final Duration ttl) {
+        return new CachingFogBugz(fogBugz, ttl);
+    }
+
+    /**
+     * Open an archive written by {@link FBArchiveWriter} as a {@link FogBugz}, so that a migration can be run from
+     * disk without a FogBugz server. The archive is memory-mapped, and cases are only read from it when they are
+     * needed. The archive holds the file open until it is closed; see {@link FBArchive}.
+     * <p>
+     * Attachments are not archived. Without an API token, their URLs point to the FogBugz instance the archive was
+     * written from but cannot be downloaded; use {@link #openArchive(Path, String)} if attachments are migrated.
+     * </p>
+     *
+     * @param file The archive file
+     * @return The {@link FBArchive}
+     * @throws FB2GHException if the file cannot be read, or is not an archive
+     */
+    public static FBArchive openArchive(final Path file) throws FB2GHException {
+        return openArchive(file, "");
+    }
+
+    /**
+     * Open an archive written by {@link FBArchiveWriter} as a {@link FogBugz}, as {@link #openArchive(Path)} does,
+     * with an API token used to download attachments from the FogBugz instance the archive was written from.
+     *
+     * @param file      The archive file
+     * @param authToken FogBugz API token
+     * @return The {@link FBArchive}
+     * @throws FB2GHException if the file cannot be read, or is not an archive
+     * @see <a href="http://help.fogcreek.com/8447/how-to-get-a-fogbugz-xml-api-token">How To Get a FogBugz XML API
+     * Token</a>
+     */
+    public static FBArchive openArchive(final Path file, final String authToken) throws FB2GHException {
+        return new ArchiveFogBugz(file, authToken);
+    }
+
 }
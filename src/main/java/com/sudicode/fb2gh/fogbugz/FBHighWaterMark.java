@@ -0,0 +1,162 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * <p>
+ * Remembers, in a file, the most recent {@link FBCase#getLastUpdated()} that has been dealt with. Together with
+ * {@link FogBugz#casesChangedSince(Instant)}, this allows a migration to be topped up repeatedly, each run picking up
+ * only the cases which changed since the previous one:
+ * </p>
+ * <pre>
+ * FBHighWaterMark mark = new FBHighWaterMark(Paths.get("fb2gh.mark"));
+ * try (Stream&lt;FBCase&gt; cases = fogBugz.casesChangedSince(mark.get())) {
+ *     Iterator&lt;FBCase&gt; it = cases.iterator();
+ *     while (it.hasNext()) {
+ *         FBCase fbCase = it.next();
+ *         // Migrate the case, then...
+ *         mark.record(fbCase);
+ *     }
+ * }
+ * mark.commit();
+ * </pre>
+ * <p>
+ * Cases do not arrive in order of their last updated time, so the mark is only stored by {@link #commit()}, once
+ * every case of the run has been dealt with. A run which stops partway stores nothing, and the next run starts from
+ * the same mark again, rather than skipping the cases which were not reached.
+ * </p>
+ * <p>
+ * The file is replaced atomically where the file system allows it, so an interrupted run never leaves it corrupt.
+ * Instances are thread-safe.
+ * </p>
+ */
+public final class FBHighWaterMark {
+
+    private static final Logger logger = LoggerFactory.getLogger(FBHighWaterMark.class);
+
+    private final Path file;
+    private Instant mark;
+    private Instant pending;
+
+    /**
+     * Constructor.
+     *
+     * @param file The file in which to store the mark. It need not exist yet.
+     */
+    public FBHighWaterMark(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the stored mark.
+     *
+     * @return The stored mark, or {@link Instant#EPOCH} if nothing has been stored yet
+     * @throws FB2GHException if the file cannot be read, or does not contain a mark
+     */
+    public synchronized Instant get() throws FB2GHException {
+        if (mark == null) {
+            mark = read();
+        }
+        return mark;
+    }
+
+    /**
+     * Move the mark forward to the given instant, and store it at once. Does nothing if the stored mark is already at
+     * or after <code>instant</code>. Every case last updated before <code>instant</code> must already have been dealt
+     * with, since later runs skip them; to remember cases as they are dealt with, use {@link #record(FBCase)}.
+     *
+     * @param instant The new mark
+     * @throws FB2GHException if the file cannot be written
+     */
+    public synchronized void advanceTo(final Instant instant) throws FB2GHException {
+        if (!instant.isAfter(get())) {
+            return;
+        }
+        write(instant);
+        mark = instant;
+    }
+
+    /**
+     * Remember that a case has been dealt with. The mark is not stored until {@link #commit()} is called, so cases
+     * may be passed in any order.
+     *
+     * @param fbCase A case which has been dealt with. Must have been loaded with {@link FBColumn#LAST_UPDATED}.
+     * @throws FB2GHException if the case has no last updated time
+     */
+    public synchronized void record(final FBCase fbCase) throws FB2GHException {
+        if (fbCase.getLastUpdated() == null) {
+            throw new FB2GHException("Case " + fbCase.getId() + " has no last updated time");
+        }
+        Instant instant = Instant.parse(fbCase.getLastUpdated());
+        if (pending == null || instant.isAfter(pending)) {
+            pending = instant;
+        }
+    }
+
+    /**
+     * Move the mark forward to the latest time at which a case passed to {@link #record(FBCase)} was last updated,
+     * and store it. Call this only once every case of the run has been dealt with.
+     *
+     * @throws FB2GHException if the file cannot be written
+     * @see #advanceTo(Instant)
+     */
+    public synchronized void commit() throws FB2GHException {
+        if (pending != null) {
+            advanceTo(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * @return The mark stored in the file, or {@link Instant#EPOCH} if there is no file
+     * @throws FB2GHException if the file cannot be read, or does not contain a mark
+     */
+    private Instant read() throws FB2GHException {
+        if (!Files.exists(file)) {
+            return Instant.EPOCH;
+        }
+        try {
+            return Instant.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+        } catch (IOException | DateTimeParseException e) {
+            throw new FB2GHException("Could not read high-water mark from " + file, e);
+        }
+    }
+
+    /**
+     * Replace the contents of the file.
+     *
+     * @param instant The mark to store
+     * @throws FB2GHException if the file cannot be written
+     */
+    private void write(final Instant instant) throws FB2GHException {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, instant.toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new FB2GHException("Could not write high-water mark to " + file, e);
+        }
+        logger.debug("High-water mark is now {}", instant);
+    }
+
+}
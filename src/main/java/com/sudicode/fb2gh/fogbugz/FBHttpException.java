@@ -0,0 +1,41 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import java.io.IOException;
+
+/**
+ * Thrown by an {@link FBTransport} when FogBugz answers with an HTTP error status, so that callers can tell a
+ * server-side failure apart from other I/O problems.
+ */
+public class FBHttpException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * Constructor.
+     *
+     * @param url        The URL which was requested
+     * @param statusCode The HTTP status code of the response
+     */
+    public FBHttpException(final String url, final int statusCode) {
+        super("HTTP " + statusCode + " from " + url);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return The HTTP status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return <code>true</code> if the status indicates a server error (5xx) or that too many requests were made
+     * (429), i.e. that the same request may succeed later
+     */
+    public boolean isTransient() {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+}
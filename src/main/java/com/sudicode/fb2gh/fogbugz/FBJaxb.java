@@ -0,0 +1,91 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * JAXB access to FogBugz responses. A {@link JAXBContext} is thread-safe and expensive to create, so a single one is
+ * shared by the whole process. {@link Unmarshaller Unmarshallers} are not thread-safe, so each thread is given its
+ * own.
+ */
+final class FBJaxb {
+
+    private static final ThreadLocal<Unmarshaller> unmarshaller = new ThreadLocal<>();
+    private static volatile JAXBContext context;
+
+    /**
+     * This is a utility class which is not designed for instantiation.
+     */
+    private FBJaxb() {
+        throw new AssertionError("Cannot instantiate.");
+    }
+
+    /**
+     * @return The shared {@link JAXBContext}, which is created on first use.
+     * @throws FB2GHException if the context cannot be created.
+     */
+    static JAXBContext getContext() throws FB2GHException {
+        JAXBContext result = context;
+        if (result == null) {
+            synchronized (FBJaxb.class) {
+                result = context;
+                if (result == null) {
+                    try {
+                        result = JAXBContext.newInstance(FBResponse.class);
+                    } catch (JAXBException e) {
+                        throw new FB2GHException("Failed to initialize XML parser", e);
+                    }
+                    context = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The {@link Unmarshaller} belonging to the current thread.
+     * @throws FB2GHException if the unmarshaller cannot be created.
+     */
+    static Unmarshaller getUnmarshaller() throws FB2GHException {
+        Unmarshaller result = unmarshaller.get();
+        if (result == null) {
+            result = newUnmarshaller();
+            unmarshaller.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Create an {@link Unmarshaller} which is not shared with any thread. Use this when the unmarshaller may outlive
+     * the current call, or be used from another thread.
+     *
+     * @return The new {@link Unmarshaller}
+     * @throws FB2GHException if the unmarshaller cannot be created.
+     */
+    static Unmarshaller newUnmarshaller() throws FB2GHException {
+        try {
+            return getContext().createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new FB2GHException("Failed to initialize XML parser", e);
+        }
+    }
+
+    /**
+     * Create a {@link Marshaller}, which writes objects back out in the same form that they are read.
+     *
+     * @return The new {@link Marshaller}
+     * @throws FB2GHException if the marshaller cannot be created.
+     */
+    static Marshaller newMarshaller() throws FB2GHException {
+        try {
+            return getContext().createMarshaller();
+        } catch (JAXBException e) {
+            throw new FB2GHException("Failed to initialize XML writer", e);
+        }
+    }
+
+}
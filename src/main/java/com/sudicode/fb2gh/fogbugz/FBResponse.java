@@ -21,6 +21,7 @@ class FBResponse {
     private List<FBStatus> statuses;
     private String error;
     private List<FBCheckin> checkins;
+    private String baseURL;
 
     FBResponse() {
     }
@@ -140,4 +141,17 @@ class FBResponse {
         this.checkins = checkins;
     }
 
+    /**
+     * @return Contents of the descendant <code>&lt;baseURL&gt;</code> element. This element is not part of the
+     * FogBugz API; it is only written to the metadata record of an archive.
+     */
+    public String getBaseURL() {
+        return baseURL;
+    }
+
+    @XmlElement(name = "baseURL")
+    void setBaseURL(String baseURL) {
+        this.baseURL = baseURL;
+    }
+
 }
@@ -0,0 +1,24 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fetches raw responses from the FogBugz API. By default, {@link FogBugz} instances use {@link HttpFBTransport}; an
+ * alternative can be supplied through {@link FBFactory}. Implementations must be safe for concurrent use, since a
+ * single {@link FogBugz} may be shared by many threads.
+ */
+@FunctionalInterface
+public interface FBTransport {
+
+    /**
+     * Open the response body of the given URL. The caller is responsible for closing the returned stream, and should
+     * read it to the end where possible so that the underlying connection can be reused.
+     *
+     * @param url The URL to request
+     * @return The (decompressed) response body
+     * @throws IOException if the request fails
+     */
+    InputStream open(String url) throws IOException;
+
+}
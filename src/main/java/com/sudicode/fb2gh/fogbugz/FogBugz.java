@@ -2,10 +2,27 @@ package com.sudicode.fb2gh.fogbugz;
 
 import com.sudicode.fb2gh.FB2GHException;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 /**
  * Entry point for the FogBugz API. Use {@link FBFactory} to instantiate.
+ * <p>
+ * Instances created by {@link FBFactory} are thread-safe: all methods may be called concurrently from multiple
+ * threads, and the {@link Iterable Iterables} and {@link java.util.stream.Stream Streams} they return may be consumed
+ * on a thread other than the one which created them (though each individual iterator or stream should only be used by
+ * one thread at a time).
  */
 public interface FogBugz {
 
@@ -95,6 +112,31 @@ public interface FogBugz {
      */
     Iterable<FBCase> iterateCases(int minId, int maxId) throws FB2GHException;
 
+    /**
+     * <p>
+     * Iterate multiple cases within a range. Rather than searching for one case number at a time, the range is split
+     * into windows of <code>batchSize</code> consecutive case numbers, each of which is fetched with a single search.
+     * Windows are fetched lazily, and cases are returned in ascending order of case number.
+     * </p>
+     * <p>
+     * If left unimplemented, this method will validate <code>batchSize</code> and then delegate to
+     * {@link #iterateCases(int, int)}.
+     * </p>
+     *
+     * @param minId     Case number to start at (inclusive)
+     * @param maxId     Case number to stop at (inclusive)
+     * @param batchSize Number of case numbers to request per search
+     * @return An {@link Iterable} of the cases
+     * @throws FB2GHException if there is an API issue.
+     * @throws IllegalArgumentException if <code>batchSize</code> is not positive
+     */
+    default Iterable<FBCase> iterateCases(int minId, int maxId, int batchSize) throws FB2GHException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        return iterateCases(minId, maxId);
+    }
+
     /**
      * Search for cases.
      *
@@ -108,6 +150,125 @@ public interface FogBugz {
      */
     List<FBCase> searchCases(String query) throws FB2GHException;
 
+    /**
+     * <p>
+     * Search for cases, requesting only the given columns. Leaving out columns which are not needed reduces the size
+     * of the response and the time taken to parse it. Use {@link FBCase#getLoadedColumns()} to see which properties
+     * of a returned case were populated. If {@link FBColumn#EVENTS} is left out, events are loaded on demand as
+     * described in {@link #searchCaseHeaders(String)}.
+     * </p>
+     * <p>
+     * If left unimplemented, this method will simply return the results of {@link #searchCases(String)}.
+     * </p>
+     *
+     * @param query   The query term you are searching for. See {@link #searchCases(String)}.
+     * @param columns The columns to request
+     * @return A list containing the search results
+     * @throws FB2GHException if there is an API issue.
+     */
+    default List<FBCase> searchCases(String query, Set<FBColumn> columns) throws FB2GHException {
+        return searchCases(query);
+    }
+
+    /**
+     * <p>
+     * Search for cases, without downloading their events up front. This is much cheaper than
+     * {@link #searchCases(String)} when only some of the results will be examined in full, for instance when most
+     * cases are filtered out by their title or status.
+     * </p>
+     * <p>
+     * The events of a case are fetched the first time {@link FBCase#getEvents()} is called on it. Events are fetched
+     * in batches, along with those of the cases which follow it in the results. If fetching fails,
+     * {@link FBCase#getEvents()} throws the {@link FB2GHException}.
+     * </p>
+     * <p>
+     * If left unimplemented, this method will simply return the results of {@link #searchCases(String)}.
+     * </p>
+     *
+     * @param query The query term you are searching for. See {@link #searchCases(String)}.
+     * @return A list containing the search results
+     * @throws FB2GHException if there is an API issue.
+     */
+    default List<FBCase> searchCaseHeaders(String query) throws FB2GHException {
+        return searchCases(query);
+    }
+
+    /**
+     * <p>
+     * Search for cases, reading each case from the response as it arrives instead of loading the entire response
+     * first. This keeps memory usage flat for searches which return many cases.
+     * </p>
+     * <p>
+     * The returned {@link Stream} may hold an open connection, so it should be closed if it is not consumed in full.
+     * If left unimplemented, this method will simply stream the results of {@link #searchCases(String)}.
+     * </p>
+     *
+     * @param query The query term you are searching for. See {@link #searchCases(String)}.
+     * @return A {@link Stream} of the search results
+     * @throws FB2GHException if there is an API issue. Errors which occur while the stream is being consumed are
+     *                        thrown from the terminal operation.
+     */
+    default Stream<FBCase> streamCases(String query) throws FB2GHException {
+        return searchCases(query).stream();
+    }
+
+    /**
+     * Stream the results of a search, requesting only the given columns. This combines
+     * {@link #streamCases(String)} with {@link #searchCases(String, Set)}. If left unimplemented, this method will
+     * simply stream the results of {@link #searchCases(String, Set)}.
+     *
+     * @param query   The query term you are searching for. See {@link #searchCases(String)}.
+     * @param columns The columns to request
+     * @return A {@link Stream} of the search results
+     * @throws FB2GHException if there is an API issue. Errors which occur while the stream is being consumed are
+     *                        thrown from the terminal operation.
+     */
+    default Stream<FBCase> streamCases(String query, Set<FBColumn> columns) throws FB2GHException {
+        return searchCases(query, columns).stream();
+    }
+
+    /**
+     * <p>
+     * Stream every case which has changed at or after the given instant, according to
+     * {@link FBCase#getLastUpdated()}. This makes it possible to top up a previous migration without searching every
+     * case again; see {@link FBHighWaterMark} for a way to remember where the last run left off.
+     * </p>
+     * <p>
+     * FogBugz only searches by date, so the search is widened by a day to allow for time zones, and cases changed
+     * before <code>since</code> are then dropped from the results. A case changed at exactly <code>since</code> is
+     * included, so passing the last seen {@link FBCase#getLastUpdated()} may return that case again, but will not
+     * miss another case changed in the same second.
+     * </p>
+     *
+     * @param since Only stream cases changed at or after this instant
+     * @return A {@link Stream} of the changed cases, which should be closed if it is not consumed in full
+     * @throws FB2GHException if there is an API issue. Errors which occur while the stream is being consumed are
+     *                        thrown from the terminal operation.
+     */
+    default Stream<FBCase> casesChangedSince(Instant since) throws FB2GHException {
+        return casesChangedSince(since, FBColumn.all());
+    }
+
+    /**
+     * Stream every case which has changed at or after the given instant, requesting only the given columns.
+     * {@link FBColumn#LAST_UPDATED} is always requested.
+     *
+     * @param since   Only stream cases changed at or after this instant
+     * @param columns The columns to request
+     * @return A {@link Stream} of the changed cases, which should be closed if it is not consumed in full
+     * @throws FB2GHException if there is an API issue. Errors which occur while the stream is being consumed are
+     *                        thrown from the terminal operation.
+     * @see #casesChangedSince(Instant)
+     */
+    default Stream<FBCase> casesChangedSince(Instant since, Set<FBColumn> columns) throws FB2GHException {
+        Set<FBColumn> requested = EnumSet.of(FBColumn.LAST_UPDATED);
+        requested.addAll(columns);
+        String day = DateTimeFormatter.ISO_LOCAL_DATE.format(since.minus(1, ChronoUnit.DAYS).atOffset(ZoneOffset.UTC));
+        return streamCases("lastedited:\"" + day + "..\"", requested)
+                .filter(fbCase -> fbCase.getLastUpdated() == null
+                        || !Instant.parse(fbCase.getLastUpdated()).isBefore(since));
+    }
+
     /**
      * Get a list of all checkins from this FogBugz instance.
      *
@@ -117,6 +278,52 @@ public interface FogBugz {
      */
     List<FBCheckin> listCheckins(FBCase fbCase) throws FB2GHException;
 
+    /**
+     * <p>
+     * Get the checkins of many cases at once. Implementations may fetch them concurrently, so this is much faster
+     * than calling {@link #listCheckins(FBCase)} for each case in turn.
+     * </p>
+     * <p>
+     * If left unimplemented, this method will call {@link #listCheckins(FBCase)} for each case in turn.
+     * </p>
+     *
+     * @param cases The cases
+     * @return The checkins of each case, keyed by case number, in the order of <code>cases</code>. Every case has an
+     * entry, which is empty if the case has no checkins.
+     * @throws FB2GHException if there is an API issue.
+     */
+    default Map<Integer, List<FBCheckin>> listCheckins(Collection<FBCase> cases) throws FB2GHException {
+        Map<Integer, List<FBCheckin>> checkins = new LinkedHashMap<>();
+        for (FBCase fbCase : cases) {
+            List<FBCheckin> list = listCheckins(fbCase);
+            checkins.put(fbCase.getId(), list != null ? list : new ArrayList<>());
+        }
+        return checkins;
+    }
+
+    /**
+     * <p>
+     * Get the checkins of every case in a range of case numbers.
+     * </p>
+     * <p>
+     * If left unimplemented, this method will pass the cases from {@link #iterateCases(int, int)} to
+     * {@link #listCheckins(Collection)}.
+     * </p>
+     *
+     * @param minId Minimum case ID, inclusive
+     * @param maxId Maximum case ID, inclusive
+     * @return The checkins of each case, keyed by case number, in ascending order. Cases without checkins have no
+     * entry.
+     * @throws FB2GHException if there is an API issue.
+     */
+    default Map<Integer, List<FBCheckin>> listCheckins(int minId, int maxId) throws FB2GHException {
+        List<FBCase> cases = new ArrayList<>();
+        iterateCases(minId, maxId).forEach(cases::add);
+        Map<Integer, List<FBCheckin>> checkins = new TreeMap<>(listCheckins(cases));
+        checkins.values().removeIf(List::isEmpty);
+        return checkins;
+    }
+
     /**
      * <p>
      * Get the FogBugz URL.
@@ -6,27 +6,84 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * {@link FogBugz} implementation.
+ * {@link FogBugz} implementation. Instances are safe for concurrent use, provided that the {@link FBTransport} is.
  */
 class FogBugzImpl implements FogBugz {
 
     private static final Logger logger = LoggerFactory.getLogger(FogBugzImpl.class);
 
+    /**
+     * Number of case numbers requested per search by {@link #iterateCases(int, int)}. Case numbers are sent as a comma
+     * separated list, so this is kept small enough for the query string to stay within common server limits.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Maximum number of cases whose events are fetched together when loading events lazily.
+     */
+    private static final int EVENT_BATCH_SIZE = 25;
+
+    /**
+     * Number of cases whose checkins are fetched by each task in {@link #listCheckins(Collection)}.
+     */
+    private static final int CHECKIN_CHUNK_SIZE = 50;
+
+    /**
+     * Maximum number of concurrent requests made by {@link #listCheckins(Collection)}, across all calls on an
+     * instance.
+     */
+    private static final int CHECKIN_PARALLELISM = 4;
+
+    /**
+     * Number of seconds an idle thread used by {@link #listCheckins(Collection)} is kept.
+     */
+    private static final long CHECKIN_THREAD_KEEP_ALIVE = 30;
+
+    private static final AtomicInteger checkinThreadCount = new AtomicInteger();
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
     private final String baseURL;
     private final String authToken;
-    private final Unmarshaller jaxb;
+    private final FBTransport transport;
+    private final ExecutorService checkinExecutor = newCheckinExecutor();
 
     /**
      * Constructor.
@@ -38,13 +95,22 @@ class FogBugzImpl implements FogBugz {
      * Token</a>
      */
     FogBugzImpl(final String baseURL, final String authToken) throws FB2GHException {
-        try {
-            this.jaxb = JAXBContext.newInstance(FBResponse.class).createUnmarshaller();
-        } catch (JAXBException e) {
-            throw new FB2GHException("Failed to initialize XML parser", e);
-        }
+        this(baseURL, authToken, new HttpFBTransport.Builder().build());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param baseURL   The FogBugz URL
+     * @param authToken FogBugz API token
+     * @param transport The {@link FBTransport} used to perform API calls
+     * @throws FB2GHException if there is an API issue.
+     */
+    FogBugzImpl(final String baseURL, final String authToken, final FBTransport transport) throws FB2GHException {
+        FBJaxb.getContext();
         this.baseURL = normalize(baseURL);
         this.authToken = authToken;
+        this.transport = transport;
     }
 
     /**
@@ -57,12 +123,24 @@ class FogBugzImpl implements FogBugz {
      * @throws FB2GHException if there is an API issue.
      */
     FogBugzImpl(final String baseURL, final String email, final String password) throws FB2GHException {
-        try {
-            this.jaxb = JAXBContext.newInstance(FBResponse.class).createUnmarshaller();
-        } catch (JAXBException e) {
-            throw new FB2GHException("Failed to initialize XML parser", e);
-        }
+        this(baseURL, email, password, new HttpFBTransport.Builder().build());
+    }
+
+    /**
+     * Constructor that obtains an <code>authToken</code> from the given email
+     * and password.
+     *
+     * @param baseURL   The FogBugz URL
+     * @param email     FogBugz email
+     * @param password  FogBugz password
+     * @param transport The {@link FBTransport} used to perform API calls
+     * @throws FB2GHException if there is an API issue.
+     */
+    FogBugzImpl(final String baseURL, final String email, final String password, final FBTransport transport)
+            throws FB2GHException {
+        FBJaxb.getContext();
         this.baseURL = normalize(baseURL);
+        this.transport = transport;
         this.authToken = parseApiRequest("logon", "email=" + email, "password=" + password).getToken();
         logger.info("Generated API token: {}", this.authToken);
     }
@@ -118,46 +196,249 @@ class FogBugzImpl implements FogBugz {
 
     @Override
     public Iterable<FBCase> iterateCases(final int minId, final int maxId) throws FB2GHException {
-        return () -> IntStream.rangeClosed(minId, maxId)
-                .mapToObj(value -> {
+        return iterateCases(minId, maxId, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public Iterable<FBCase> iterateCases(final int minId, final int maxId, final int batchSize) throws FB2GHException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        if (minId > maxId) {
+            return Collections.emptyList();
+        }
+        long batchCount = ((long) maxId - minId) / batchSize + 1;
+        return () -> LongStream.range(0, batchCount)
+                .mapToObj(batch -> {
+                    int lo = (int) (minId + batch * batchSize);
+                    int hi = (int) Math.min((long) lo + batchSize - 1, maxId);
+                    String query = IntStream.rangeClosed(lo, hi)
+                            .mapToObj(String::valueOf)
+                            .collect(Collectors.joining(","));
                     try {
-                        return searchCases(String.valueOf(value));
+                        return searchCases(query);
                     } catch (FB2GHException e) {
                         // Method throws FB2GHException, so this is safe to do
                         throw Lombok.sneakyThrow(e);
                     }
                 })
-                .filter(list -> !list.isEmpty())
-                .flatMap(Collection::stream)
+                .flatMap(list -> list.stream().sorted(Comparator.comparingInt(FBCase::getId)))
                 .iterator();
     }
 
     @Override
     public List<FBCase> searchCases(final String query) throws FB2GHException {
-        String encodedQuery;
-        try {
-            encodedQuery = URLEncoder.encode(query, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            // Shouldn't happen
-            throw Lombok.sneakyThrow(e);
-        }
-        String cols = String.join(",", "ixBugParent", "fOpen", "sTitle", "sPersonAssignedTo", "sStatus",
-                "ixBugOriginal", "sPriority", "ixFixFor", "sFixFor", "sCategory", "events",
-                "plugin_customfields_at_fogcreek_com_scasexxs01", "ixProject", "sProject", "sArea",
-                "plugin_customfields_at_fogcreek_com_customery84");
-        List<FBCase> list = parseApiRequest("search", "q=" + encodedQuery, "cols=" + cols).getCases();
+        return searchCases(query, FBColumn.all());
+    }
+
+    @Override
+    public List<FBCase> searchCases(final String query, final Set<FBColumn> columns) throws FB2GHException {
+        List<FBCase> list = parseApiRequest("search", "q=" + encode(query), "cols=" + toApiColumns(columns))
+                .getCases();
         if (list == null) {
             list = new ArrayList<>();
         }
+        list.forEach(fbCase -> fbCase.setLoadedColumns(columns));
+        if (!columns.contains(FBColumn.EVENTS)) {
+            FBEventLoader.attach(this, list, EVENT_BATCH_SIZE);
+        }
         logger.info("Search for '{}' returned {} case(s)", query, list.size());
         return list;
     }
 
+    @Override
+    public List<FBCase> searchCaseHeaders(final String query) throws FB2GHException {
+        return searchCases(query, FBColumn.headers());
+    }
+
+    /**
+     * Fetch only the events of the cases matching the given query.
+     *
+     * @param query The query term you are searching for
+     * @return The events, keyed by case number
+     * @throws FB2GHException if there is an API issue.
+     */
+    Map<Integer, List<FBCaseEvent>> searchEvents(final String query) throws FB2GHException {
+        List<FBCase> list = parseApiRequest("search", "q=" + encode(query), "cols=events").getCases();
+        Map<Integer, List<FBCaseEvent>> events = new HashMap<>();
+        if (list != null) {
+            for (FBCase fbCase : list) {
+                events.put(fbCase.getId(), fbCase.getEvents());
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public Stream<FBCase> streamCases(final String query) throws FB2GHException {
+        return streamCases(query, FBColumn.all());
+    }
+
+    @Override
+    public Stream<FBCase> streamCases(final String query, final Set<FBColumn> columns) throws FB2GHException {
+        String url = buildApiUrl("search", "q=" + encode(query), "cols=" + toApiColumns(columns));
+        logger.info("Opening URL: {}", url);
+        Unmarshaller unmarshaller = FBJaxb.newUnmarshaller();
+        InputStream source;
+        try {
+            source = transport.open(url);
+        } catch (IOException e) {
+            throw new FB2GHException("Could not open " + url, e);
+        }
+        try {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(source);
+            FBCaseIterator iterator = new FBCaseIterator(source, xml, unmarshaller, url);
+            Iterator<FBCase> cases = columns.contains(FBColumn.EVENTS) ? iterator : withEventLoaders(iterator);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cases,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close)
+                    .map(fbCase -> {
+                        fbCase.setLoadedColumns(columns);
+                        return fbCase;
+                    });
+        } catch (XMLStreamException e) {
+            try {
+                source.close();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw new FB2GHException("Could not parse " + url, e);
+        }
+    }
+
+    /**
+     * Read cases ahead in windows of {@link #EVENT_BATCH_SIZE}, and make the cases of each window load their events
+     * on demand through a loader shared by the window, as {@link #searchCases(String, Set)} does for its results.
+     *
+     * @param cases The cases, as they are read from a search
+     * @return The same cases, in the same order
+     */
+    private Iterator<FBCase> withEventLoaders(final Iterator<FBCase> cases) {
+        return new Iterator<FBCase>() {
+            private Iterator<FBCase> window = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                return window.hasNext() || cases.hasNext();
+            }
+
+            @Override
+            public FBCase next() {
+                if (!window.hasNext()) {
+                    List<FBCase> list = new ArrayList<>(EVENT_BATCH_SIZE);
+                    while (list.size() < EVENT_BATCH_SIZE && cases.hasNext()) {
+                        list.add(cases.next());
+                    }
+                    FBEventLoader.attach(FogBugzImpl.this, list, EVENT_BATCH_SIZE);
+                    window = list.iterator();
+                }
+                return window.next();
+            }
+        };
+    }
+
     @Override
     public List<FBCheckin> listCheckins(final FBCase fbCase) throws FB2GHException {
         return parseApiRequest("listCheckins", "ixBug=" + fbCase.getId()).getCheckins();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The API only lists the checkins of one case per request, so the cases are split into chunks which are fetched
+     * in parallel.
+     */
+    @Override
+    public Map<Integer, List<FBCheckin>> listCheckins(final Collection<FBCase> cases) throws FB2GHException {
+        return listCheckins(cases.stream().mapToInt(FBCase::getId).distinct().toArray(), new LinkedHashMap<>());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The case numbers which exist in the range are found first, with one search per window of case numbers which
+     * returns nothing but the case numbers. Only the checkins of those cases are then requested, in parallel chunks.
+     */
+    @Override
+    public Map<Integer, List<FBCheckin>> listCheckins(final int minId, final int maxId) throws FB2GHException {
+        Map<Integer, List<FBCheckin>> checkins = listCheckins(findCaseIds(minId, maxId), new TreeMap<>());
+        checkins.values().removeIf(List::isEmpty);
+        return checkins;
+    }
+
+    /**
+     * Find which case numbers within a range belong to existing cases, searching for {@link #DEFAULT_BATCH_SIZE}
+     * case numbers at a time and requesting no columns other than the case number.
+     *
+     * @param minId Minimum case ID, inclusive
+     * @param maxId Maximum case ID, inclusive
+     * @return The case numbers of the existing cases, in ascending order
+     * @throws FB2GHException if there is an API issue.
+     */
+    private int[] findCaseIds(final int minId, final int maxId) throws FB2GHException {
+        List<Integer> caseIds = new ArrayList<>();
+        for (long lo = minId; lo <= maxId; lo += DEFAULT_BATCH_SIZE) {
+            String query = LongStream.rangeClosed(lo, Math.min(lo + DEFAULT_BATCH_SIZE - 1, maxId))
+                    .mapToObj(String::valueOf)
+                    .collect(Collectors.joining(","));
+            List<FBCase> cases = parseApiRequest("search", "q=" + encode(query), "cols=ixBug").getCases();
+            if (cases != null) {
+                cases.forEach(fbCase -> caseIds.add(fbCase.getId()));
+            }
+        }
+        return caseIds.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+    }
+
+    /**
+     * Fetch the checkins of the given cases in parallel.
+     *
+     * @param caseIds  The case numbers
+     * @param checkins The map to fill, keyed by case number
+     * @return <code>checkins</code>
+     * @throws FB2GHException if there is an API issue.
+     */
+    private Map<Integer, List<FBCheckin>> listCheckins(final int[] caseIds,
+                                                       final Map<Integer, List<FBCheckin>> checkins)
+            throws FB2GHException {
+        if (caseIds.length == 0) {
+            return checkins;
+        }
+        int chunks = (caseIds.length + CHECKIN_CHUNK_SIZE - 1) / CHECKIN_CHUNK_SIZE;
+        List<Future<List<List<FBCheckin>>>> futures = new ArrayList<>(chunks);
+        try {
+            for (int start = 0; start < caseIds.length; start += CHECKIN_CHUNK_SIZE) {
+                int[] chunk = Arrays.copyOfRange(caseIds, start, Math.min(start + CHECKIN_CHUNK_SIZE, caseIds.length));
+                futures.add(checkinExecutor.submit(() -> {
+                    List<List<FBCheckin>> results = new ArrayList<>(chunk.length);
+                    for (int caseId : chunk) {
+                        List<FBCheckin> list = parseApiRequest("listCheckins", "ixBug=" + caseId).getCheckins();
+                        results.add(list != null ? list : new ArrayList<>());
+                    }
+                    return results;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                List<List<FBCheckin>> results = futures.get(i).get();
+                for (int j = 0; j < results.size(); j++) {
+                    checkins.put(caseIds[i * CHECKIN_CHUNK_SIZE + j], results.get(j));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FB2GHException("Interrupted while listing checkins", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FB2GHException) {
+                throw (FB2GHException) e.getCause();
+            }
+            throw new FB2GHException("Failed to list checkins", e.getCause());
+        } finally {
+            // Stop whatever is left after a failure; does nothing once every chunk is done
+            futures.forEach(future -> future.cancel(true));
+        }
+        logger.debug("Listed checkins of {} cases", caseIds.length);
+        return checkins;
+    }
+
     @Override
     public String getBaseURL() {
         return baseURL;
@@ -179,6 +460,30 @@ class FogBugzImpl implements FogBugz {
      * API</a>
      */
     private FBResponse parseApiRequest(final String cmd, final String... parameters) throws FB2GHException {
+        String url = buildApiUrl(cmd, parameters);
+        logger.info("Opening URL: {}", url);
+        FBResponse response;
+        try (InputStream source = transport.open(url)) {
+            response = (FBResponse) FBJaxb.getUnmarshaller().unmarshal(new StreamSource(source, url));
+        } catch (IOException e) {
+            throw new FB2GHException("Could not open " + url, e);
+        } catch (JAXBException e) {
+            throw new FB2GHException("Could not parse " + url, e);
+        }
+        if (response.getError() != null) {
+            throw new FB2GHException(response.getError());
+        }
+        return response;
+    }
+
+    /**
+     * Build the URL for the given API call.
+     *
+     * @param cmd        The <code>cmd</code> argument
+     * @param parameters Additional parameters to include in the query string
+     * @return The URL
+     */
+    private String buildApiUrl(final String cmd, final String... parameters) {
         // Required
         StringBuilder urlBuilder = new StringBuilder(getBaseURL()).append("/api.asp?cmd=").append(cmd);
         if (!"logon".equals(cmd)) {
@@ -190,20 +495,63 @@ class FogBugzImpl implements FogBugz {
             urlBuilder.append('&').append(param);
         }
 
-        // Parse XML response
-        String url = urlBuilder.toString();
-        logger.info("Opening URL: {}", url);
+        return urlBuilder.toString();
+    }
+
+    /**
+     * Convert columns to the value of the <code>cols</code> parameter.
+     *
+     * @param columns The columns
+     * @return Comma separated list of API column names
+     */
+    private static String toApiColumns(final Set<FBColumn> columns) {
+        if (columns.isEmpty()) {
+            // An empty cols parameter would return FogBugz's default columns, so ask for the case number alone
+            return "ixBug";
+        }
+        return columns.stream().map(FBColumn::getApiName).collect(Collectors.joining(","));
+    }
+
+    /**
+     * URL-encode a query string value.
+     *
+     * @param value The value
+     * @return The encoded value
+     */
+    private static String encode(final String value) {
         try {
-            FBResponse response = (FBResponse) jaxb.unmarshal(new StreamSource(url));
-            if (response.getError() != null) {
-                throw new FB2GHException(response.getError());
-            }
-            return response;
-        } catch (JAXBException e) {
-            throw new FB2GHException("Could not parse " + url, e);
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Shouldn't happen
+            throw Lombok.sneakyThrow(e);
         }
     }
 
+    /**
+     * @return An executor for the requests made by {@link #listCheckins(Collection)}. Its threads are daemons, and
+     * exit once idle, so an instance which is no longer used does not keep any threads alive.
+     */
+    private static ExecutorService newCheckinExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(CHECKIN_PARALLELISM, CHECKIN_PARALLELISM,
+                CHECKIN_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "fb2gh-checkins-" + checkinThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return A StAX factory which does not resolve DTDs or external entities.
+     */
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     /**
      * Remove trailing "default.asp" (if present) from the given URL. This
      * method might be a bit of a misnomer, as it does not perform a fully
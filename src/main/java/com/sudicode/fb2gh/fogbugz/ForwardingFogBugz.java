@@ -0,0 +1,151 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A {@link FogBugz} which forwards every call to another {@link FogBugz}, including those with default
+ * implementations. Subclasses override only the methods whose behavior they change.
+ */
+abstract class ForwardingFogBugz implements FogBugz {
+
+    private final FogBugz delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The {@link FogBugz} to forward calls to
+     */
+    ForwardingFogBugz(final FogBugz delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return The {@link FogBugz} that calls are forwarded to
+     */
+    FogBugz delegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<FBProject> listProjects() throws FB2GHException {
+        return delegate.listProjects();
+    }
+
+    @Override
+    public List<FBMilestone> listMilestones() throws FB2GHException {
+        return delegate.listMilestones();
+    }
+
+    @Override
+    public List<FBMilestone> listMilestones(final FBProject project) throws FB2GHException {
+        return delegate.listMilestones(project);
+    }
+
+    @Override
+    public List<FBArea> listAreas() throws FB2GHException {
+        return delegate.listAreas();
+    }
+
+    @Override
+    public List<FBArea> listAreas(final FBProject project) throws FB2GHException {
+        return delegate.listAreas(project);
+    }
+
+    @Override
+    public List<FBCategory> listCategories() throws FB2GHException {
+        return delegate.listCategories();
+    }
+
+    @Override
+    public List<FBStatus> listStatuses() throws FB2GHException {
+        return delegate.listStatuses();
+    }
+
+    @Override
+    public List<FBStatus> listStatuses(final FBCategory category) throws FB2GHException {
+        return delegate.listStatuses(category);
+    }
+
+    @Override
+    public FBCase getCase(final int caseId) throws FB2GHException {
+        return delegate.getCase(caseId);
+    }
+
+    @Override
+    public Iterable<FBCase> iterateCases(final int minId, final int maxId) throws FB2GHException {
+        return delegate.iterateCases(minId, maxId);
+    }
+
+    @Override
+    public Iterable<FBCase> iterateCases(final int minId, final int maxId, final int batchSize) throws FB2GHException {
+        return delegate.iterateCases(minId, maxId, batchSize);
+    }
+
+    @Override
+    public List<FBCase> searchCases(final String query) throws FB2GHException {
+        return delegate.searchCases(query);
+    }
+
+    @Override
+    public List<FBCase> searchCases(final String query, final Set<FBColumn> columns) throws FB2GHException {
+        return delegate.searchCases(query, columns);
+    }
+
+    @Override
+    public List<FBCase> searchCaseHeaders(final String query) throws FB2GHException {
+        return delegate.searchCaseHeaders(query);
+    }
+
+    @Override
+    public Stream<FBCase> streamCases(final String query) throws FB2GHException {
+        return delegate.streamCases(query);
+    }
+
+    @Override
+    public Stream<FBCase> streamCases(final String query, final Set<FBColumn> columns) throws FB2GHException {
+        return delegate.streamCases(query, columns);
+    }
+
+    @Override
+    public Stream<FBCase> casesChangedSince(final Instant since) throws FB2GHException {
+        return delegate.casesChangedSince(since);
+    }
+
+    @Override
+    public Stream<FBCase> casesChangedSince(final Instant since, final Set<FBColumn> columns) throws FB2GHException {
+        return delegate.casesChangedSince(since, columns);
+    }
+
+    @Override
+    public List<FBCheckin> listCheckins(final FBCase fbCase) throws FB2GHException {
+        return delegate.listCheckins(fbCase);
+    }
+
+    @Override
+    public Map<Integer, List<FBCheckin>> listCheckins(final Collection<FBCase> cases) throws FB2GHException {
+        return delegate.listCheckins(cases);
+    }
+
+    @Override
+    public Map<Integer, List<FBCheckin>> listCheckins(final int minId, final int maxId) throws FB2GHException {
+        return delegate.listCheckins(minId, maxId);
+    }
+
+    @Override
+    public String getBaseURL() {
+        return delegate.getBaseURL();
+    }
+
+    @Override
+    public String getAuthToken() {
+        return delegate.getAuthToken();
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.common.AbstractBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link FBTransport} built on {@link HttpURLConnection}.
+ * <p>
+ * Connections are kept alive and reused by the JDK once a response has been read in full and closed, which avoids a
+ * new TCP (and TLS) handshake per request. The JDK keeps up to <code>http.maxConnections</code> (default 5) idle
+ * connections per host. Responses are requested with gzip compression, and are decompressed as they are read.
+ * <p>
+ * The number of requests to a single host which may be waiting for a response at once is limited. A request stops
+ * counting towards the limit as soon as the headers of its response arrive, so a response which is still being read
+ * never holds up another request, even one made by the same thread. This is not a limit on connections: a response
+ * which is still being read keeps its connection open, and the JDK opens another for the next request.
+ * <p>
+ * To instantiate, use the builder, like so:
+ * <pre>
+ * FBTransport transport = new HttpFBTransport.Builder()
+ *     .connectTimeout(10000)
+ *     .readTimeout(60000)
+ *     .maxRequestsInFlight(4)
+ *     .build();
+ * </pre>
+ * Instances are thread-safe.
+ */
+public class HttpFBTransport implements FBTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpFBTransport.class);
+    private static final int DEFAULT_CONNECT_TIMEOUT = 30 * 1000;
+    private static final int DEFAULT_READ_TIMEOUT = 5 * 60 * 1000;
+    private static final int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 5;
+
+    /**
+     * Size (in bytes) of the buffer used to decompress responses.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxRequestsInFlight;
+    private final boolean gzip;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private HttpFBTransport(final Builder builder) {
+        connectTimeout = builder.connectTimeout;
+        readTimeout = builder.readTimeout;
+        maxRequestsInFlight = builder.maxRequestsInFlight;
+        gzip = builder.gzip;
+    }
+
+    /**
+     * Builder used to instantiate {@link HttpFBTransport}.
+     */
+    public static final class Builder extends AbstractBuilder<HttpFBTransport> {
+        private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+        private int maxRequestsInFlight = DEFAULT_MAX_REQUESTS_IN_FLIGHT;
+        private boolean gzip = true;
+
+        /**
+         * @param connectTimeout Number of milliseconds to wait for a connection to be established. Zero means no
+         *                       timeout.
+         * @return This object
+         * @throws IllegalArgumentException if <code>connectTimeout</code> is negative
+         */
+        public Builder connectTimeout(final int connectTimeout) {
+            if (connectTimeout < 0) {
+                throw new IllegalArgumentException("Connect timeout cannot be negative.");
+            }
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout Number of milliseconds to wait for data while reading a response. Zero means no timeout.
+         * @return This object
+         * @throws IllegalArgumentException if <code>readTimeout</code> is negative
+         */
+        public Builder readTimeout(final int readTimeout) {
+            if (readTimeout < 0) {
+                throw new IllegalArgumentException("Read timeout cannot be negative.");
+            }
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxRequestsInFlight Maximum number of requests to a single host which may be waiting for a response
+         *                            at once. Further requests block until one of them has received the headers of
+         *                            its response. Default is 5.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxRequestsInFlight</code> is not positive
+         */
+        public Builder maxRequestsInFlight(final int maxRequestsInFlight) {
+            if (maxRequestsInFlight <= 0) {
+                throw new IllegalArgumentException("Max requests in flight must be positive.");
+            }
+            this.maxRequestsInFlight = maxRequestsInFlight;
+            return this;
+        }
+
+        /**
+         * @param gzip Whether to request gzip-compressed responses. Enabled by default.
+         * @return This object
+         */
+        public Builder gzip(final boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        @Override
+        public HttpFBTransport build() {
+            return new HttpFBTransport(this);
+        }
+    }
+
+    @Override
+    public InputStream open(final String url) throws IOException {
+        URL target = new URL(url);
+        Semaphore semaphore = permits.computeIfAbsent(target.getHost() + ":" + target.getPort(),
+                host -> new Semaphore(maxRequestsInFlight, true));
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + target.getHost(), e);
+        }
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) target.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            if (gzip) {
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+            }
+
+            int status = connection.getResponseCode();
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                discard(connection);
+                throw new FBHttpException(url, status);
+            }
+
+            InputStream body = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                try {
+                    body = new GZIPInputStream(body, BUFFER_SIZE);
+                } catch (IOException e) {
+                    body.close();
+                    throw e;
+                }
+            }
+            logger.debug("Opened {} (HTTP {})", url, status);
+            return body;
+        } finally {
+            // Reading the body is left to the JDK, which only reuses a connection once the body has been read
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Read and close the body of an error response, so that the connection can be reused.
+     *
+     * @param connection The connection
+     */
+    private static void discard(final HttpURLConnection connection) {
+        InputStream error = connection.getErrorStream();
+        if (error == null) {
+            return;
+        }
+        try (InputStream in = error) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Discard
+            }
+        } catch (IOException e) {
+            logger.debug("Could not read error response", e);
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.sudicode.fb2gh.common.AbstractBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * {@link FBTransport} which limits how hard another {@link FBTransport} is pushed, and retries requests which fail
+ * for transient reasons.
+ * </p>
+ * <ul>
+ * <li>Requests are started at no more than a configured rate (a token bucket). Whenever FogBugz reports a server
+ * error, the rate is halved; each success then raises it by a tenth of the configured rate, until it is back at the
+ * configured rate.</li>
+ * <li>No more than a configured number of requests may be waiting for a response at once. Further requests block
+ * until one of them has received its response. Responses which are still being read do not count, so a caller may
+ * open a request while reading another, as streaming searches do when loading events.</li>
+ * <li>Requests which fail with a 5xx or 429 status ({@link FBHttpException#isTransient()}) or a timeout are retried
+ * after an exponentially growing, randomized delay. Only opening a response is retried; errors which occur while it
+ * is being read are passed to the caller.</li>
+ * </ul>
+ * <p>
+ * To instantiate, use the builder, like so:
+ * </p>
+ * <pre>
+ * FBTransport transport = new ThrottledFBTransport.Builder(new HttpFBTransport.Builder().build())
+ *     .permitsPerSecond(10)
+ *     .maxConcurrentRequests(4)
+ *     .maxRetries(5)
+ *     .build();
+ * </pre>
+ * <p>
+ * Instances are thread-safe, provided that the delegate is.
+ * </p>
+ */
+public class ThrottledFBTransport implements FBTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThrottledFBTransport.class);
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final FBTransport delegate;
+    private final RateLimiter rateLimiter;
+    private final double maxRate;
+    private final Semaphore concurrency;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private ThrottledFBTransport(final Builder builder) {
+        delegate = builder.delegate;
+        maxRate = builder.permitsPerSecond;
+        rateLimiter = maxRate > 0 ? RateLimiter.create(maxRate) : null;
+        concurrency = builder.maxConcurrentRequests > 0 ? new Semaphore(builder.maxConcurrentRequests, true) : null;
+        maxRetries = builder.maxRetries;
+        initialBackoffMillis = builder.initialBackoff.toMillis();
+        maxBackoffMillis = builder.maxBackoff.toMillis();
+    }
+
+    /**
+     * Builder used to instantiate {@link ThrottledFBTransport}.
+     */
+    public static final class Builder extends AbstractBuilder<ThrottledFBTransport> {
+        private final FBTransport delegate;
+        private double permitsPerSecond;
+        private int maxConcurrentRequests;
+        private int maxRetries = DEFAULT_MAX_RETRIES;
+        private Duration initialBackoff = DEFAULT_INITIAL_BACKOFF;
+        private Duration maxBackoff = DEFAULT_MAX_BACKOFF;
+
+        /**
+         * Constructor.
+         *
+         * @param delegate The {@link FBTransport} which actually performs requests
+         */
+        public Builder(final FBTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * @param permitsPerSecond Maximum number of requests to start per second. Zero (the default) means no limit.
+         * @return This object
+         * @throws IllegalArgumentException if <code>permitsPerSecond</code> is negative
+         */
+        public Builder permitsPerSecond(final double permitsPerSecond) {
+            if (permitsPerSecond < 0) {
+                throw new IllegalArgumentException("Permits per second cannot be negative.");
+            }
+            this.permitsPerSecond = permitsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentRequests Maximum number of requests which may be waiting for a response at once. Zero
+         *                              (the default) means no limit.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxConcurrentRequests</code> is negative
+         */
+        public Builder maxConcurrentRequests(final int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 0) {
+                throw new IllegalArgumentException("Max concurrent requests cannot be negative.");
+            }
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * @param maxRetries Number of times to retry a request which fails for a transient reason. Default is 3.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxRetries</code> is negative
+         */
+        public Builder maxRetries(final int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("Max retries cannot be negative.");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param initialBackoff Upper bound of the delay before the first retry. The bound doubles with each further
+         *                       retry. Default is 500 milliseconds.
+         * @return This object
+         */
+        public Builder initialBackoff(final Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        /**
+         * @param maxBackoff Largest delay between retries. Default is 30 seconds.
+         * @return This object
+         */
+        public Builder maxBackoff(final Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        @Override
+        public ThrottledFBTransport build() {
+            return new ThrottledFBTransport(this);
+        }
+    }
+
+    @Override
+    public InputStream open(final String url) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                InputStream response = attempt(url);
+                onSuccess();
+                return response;
+            } catch (IOException e) {
+                if (!isTransient(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                onTransientFailure();
+                long delay = backoff(attempt);
+                logger.warn("Request failed ({}), retrying in {} ms", e.getMessage(), delay);
+                retried.incrementAndGet();
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Make a single attempt at a request, waiting for the rate limiter and a free slot first.
+     *
+     * @param url The URL to request
+     * @return The response body
+     * @throws IOException if an I/O error occurs
+     */
+    private InputStream attempt(final String url) throws IOException {
+        boolean waited = false;
+        if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+            waited = true;
+            rateLimiter.acquire();
+        }
+        if (concurrency == null) {
+            countThrottled(waited);
+            return delegate.open(url);
+        }
+        if (!concurrency.tryAcquire()) {
+            waited = true;
+            try {
+                concurrency.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to request " + url, e);
+            }
+        }
+        countThrottled(waited);
+        try {
+            return delegate.open(url);
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * @param waited Whether a request had to wait before it could start
+     */
+    private void countThrottled(final boolean waited) {
+        if (waited) {
+            throttled.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param e The exception which caused a request to fail
+     * @return <code>true</code> if the same request may succeed later
+     */
+    private static boolean isTransient(final IOException e) {
+        if (e instanceof FBHttpException) {
+            return ((FBHttpException) e).isTransient();
+        }
+        return e instanceof SocketTimeoutException;
+    }
+
+    /**
+     * Raise the rate by a tenth of the configured rate, up to the configured rate.
+     */
+    private void onSuccess() {
+        if (rateLimiter != null && rateLimiter.getRate() < maxRate) {
+            synchronized (rateLimiter) {
+                rateLimiter.setRate(Math.min(maxRate, rateLimiter.getRate() + maxRate / 10));
+            }
+        }
+    }
+
+    /**
+     * Halve the rate, down to a tenth of the configured rate.
+     */
+    private void onTransientFailure() {
+        if (rateLimiter != null) {
+            synchronized (rateLimiter) {
+                double rate = Math.max(maxRate / 10, rateLimiter.getRate() / 2);
+                rateLimiter.setRate(rate);
+                logger.info("Reduced request rate to {} per second", rate);
+            }
+        }
+    }
+
+    /**
+     * Pick a random delay between zero and the backoff bound for the given attempt ("full jitter"), so that callers
+     * which failed together do not all retry together.
+     *
+     * @param attempt Zero-based number of the attempt which failed
+     * @return The delay, in milliseconds
+     */
+    private long backoff(final int attempt) {
+        long bound = initialBackoffMillis << Math.min(attempt, 30);
+        if (bound <= 0 || bound > maxBackoffMillis) {
+            bound = maxBackoffMillis;
+        }
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    /**
+     * @param millis Number of milliseconds to sleep
+     * @throws IOException if interrupted
+     */
+    private static void sleep(final long millis) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * @return Number of requests which had to wait for the rate limit or for a free slot before starting
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * @return Number of retries made after transient failures
+     */
+    public long getRetriedCount() {
+        return retried.get();
+    }
+
+    /**
+     * @return The current rate limit in requests per second, which may be below the configured rate after server
+     * errors, or zero if requests are not rate limited
+     */
+    public double getCurrentRate() {
+        return rateLimiter != null ? rateLimiter.getRate() : 0;
+    }
+
+}
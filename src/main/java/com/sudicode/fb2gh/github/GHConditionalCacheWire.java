@@ -0,0 +1,160 @@
+package com.sudicode.fb2gh.github;
+
+import com.google.common.net.HttpHeaders;
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import com.jcabi.http.request.DefaultResponse;
+import com.jcabi.immutable.Array;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link Wire} which keeps the responses to <code>GET</code> requests, and makes later requests for the same resource
+ * conditional on it having changed.
+ * <p>
+ * A response is kept if it has an <code>ETag</code> or <code>Last-Modified</code> header. The next request for the
+ * same URL is sent with <code>If-None-Match</code> or <code>If-Modified-Since</code>, and if GitHub answers
+ * <code>304 Not Modified</code>, the kept response is returned instead. GitHub does not count such requests against
+ * the rate limit. The kept response is returned with the headers of the <code>304</code> response in place of its
+ * own, so that it reports the current rate limit. Responses are kept per URL, <code>Accept</code> header and
+ * <code>Authorization</code> header, so this wire must be placed below any wire which adds credentials. Once the
+ * cache holds its maximum number of responses, the least recently used ones are evicted.
+ * </p>
+ * <p>
+ * This class is public only so that it can be instantiated by {@link Request#through(Class, Object...)}.
+ * </p>
+ *
+ * @see <a href="https://developer.github.com/v3/#conditional-requests">Conditional requests</a>
+ */
+public final class GHConditionalCacheWire implements Wire {
+
+    private static final Logger logger = LoggerFactory.getLogger(GHConditionalCacheWire.class);
+
+    private final Wire origin;
+    private final int maxEntries;
+
+    /**
+     * Kept responses, in order of least recent use.
+     */
+    private final LinkedHashMap<String, Response> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructor.
+     *
+     * @param origin     The original wire
+     * @param maxEntries Maximum number of responses to keep
+     */
+    public GHConditionalCacheWire(final Wire origin, final int maxEntries) {
+        this.origin = origin;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public Response send(final Request req, final String home, final String method,
+                         final Collection<Map.Entry<String, String>> headers, final InputStream content,
+                         final int connect, final int read) throws IOException {
+        if (!Request.GET.equals(method) || isConditional(headers)) {
+            return origin.send(req, home, method, headers, content, connect, read);
+        }
+
+        String key = home + '\n' + value(headers, HttpHeaders.ACCEPT)
+                + '\n' + value(headers, HttpHeaders.AUTHORIZATION);
+        Response cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        Collection<Map.Entry<String, String>> sent = headers;
+        if (cached != null) {
+            sent = new ArrayList<>(headers);
+            addValidator(sent, cached, HttpHeaders.ETAG, HttpHeaders.IF_NONE_MATCH);
+            addValidator(sent, cached, HttpHeaders.LAST_MODIFIED, HttpHeaders.IF_MODIFIED_SINCE);
+        }
+
+        Response response = origin.send(req, home, method, sent, content, connect, read);
+        if (cached != null && response.status() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            logger.debug("{} not modified, using cached response.", home);
+            return refresh(cached, response);
+        }
+        synchronized (entries) {
+            if (response.status() == HttpURLConnection.HTTP_OK
+                    && (GHUtils.header(response.headers(), HttpHeaders.ETAG) != null
+                    || GHUtils.header(response.headers(), HttpHeaders.LAST_MODIFIED) != null)) {
+                entries.put(key, response);
+                if (entries.size() > maxEntries) {
+                    entries.remove(entries.keySet().iterator().next());
+                }
+            } else {
+                entries.remove(key);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @param cached      The cached response
+     * @param notModified The <code>304</code> response which confirmed it
+     * @return The cached response, with the headers of <code>notModified</code> in place of its own
+     */
+    private static Response refresh(final Response cached, final Response notModified) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(cached.headers());
+        headers.putAll(notModified.headers());
+        Collection<Map.Entry<String, String>> entries = new ArrayList<>();
+        headers.forEach((name, values) -> values.forEach(
+                value -> entries.add(new AbstractMap.SimpleImmutableEntry<>(name, value))));
+        return new DefaultResponse(cached.back(), cached.status(), cached.reason(), new Array<>(entries),
+                cached.binary());
+    }
+
+    /**
+     * @param headers Request headers
+     * @return <code>true</code> if the request is already conditional, in which case it is passed through as is
+     */
+    private static boolean isConditional(final Collection<Map.Entry<String, String>> headers) {
+        return value(headers, HttpHeaders.IF_NONE_MATCH) != null
+                || value(headers, HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * @param headers Request headers
+     * @param name    Name of a header, which is matched regardless of case
+     * @return The value of the header, or <code>null</code> if absent
+     */
+    private static String value(final Collection<Map.Entry<String, String>> headers, final String name) {
+        for (Map.Entry<String, String> header : headers) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If the cached response has a validator, add the matching conditional header to a request.
+     *
+     * @param headers     Request headers
+     * @param cached      The cached response
+     * @param validator   Name of the response header which holds the validator
+     * @param conditional Name of the request header to send the validator in
+     */
+    private static void addValidator(final Collection<Map.Entry<String, String>> headers, final Response cached,
+                                     final String validator, final String conditional) {
+        String value = GHUtils.header(cached.headers(), validator);
+        if (value != null) {
+            headers.add(new AbstractMap.SimpleImmutableEntry<>(conditional, value));
+        }
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.sudicode.fb2gh.github;
 
+import java.util.Collection;
+
 /**
  * Factory used to interact with <a href="https://github.com">GitHub</a>.
  */
@@ -32,6 +34,20 @@ public final class GHFactory {
         return new GitHubImpl(token);
     }
 
+    /**
+     * Construct a new {@link GitHub}, authenticating via a pool of OAuth tokens, each with a rate limit of its own.
+     * Requests which read from GitHub are spread across the tokens, while requests which create content are always
+     * sent with the first token, so that the migrated issues and comments are all attributed to the same account.
+     *
+     * @param tokens The OAuth tokens, in order of preference
+     * @return The {@link GitHub}
+     * @throws IllegalArgumentException if <code>tokens</code> is empty
+     * @see <a href="https://developer.github.com/v3/oauth/">OAuth</a>
+     */
+    public static GitHub newGitHub(final Collection<String> tokens) {
+        return new GitHubImpl(tokens);
+    }
+
     /**
      * Construct a new {@link GitHub}, authenticating via username and password.
      * <p>
@@ -0,0 +1,304 @@
+package com.sudicode.fb2gh.github;
+
+import com.sudicode.fb2gh.common.AbstractBuilder;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>
+ * A complete issue, including its comments, labels, milestone, assignee and state, to be created in a single request
+ * with {@link GHRepo#importIssue(GHIssueImport)}. Timestamps are kept, so the issue and its comments show when they
+ * were originally written.
+ * </p>
+ * <p>
+ * To instantiate, use the builder, like so:
+ * </p>
+ * <pre>
+ * GHIssueImport issueImport = new GHIssueImport.Builder("Title", "Description")
+ *     .createdAt(created)
+ *     .labels(labels)
+ *     .milestone(milestone)
+ *     .comment("First comment", commented)
+ *     .closed(true)
+ *     .build();
+ * </pre>
+ * <p>
+ * Instances are immutable.
+ * </p>
+ */
+public final class GHIssueImport {
+
+    private final String title;
+    private final String body;
+    private final Date createdAt;
+    private final Date closedAt;
+    private final boolean closed;
+    private final String assignee;
+    private final GHMilestone milestone;
+    private final List<GHLabel> labels;
+    private final List<Comment> comments;
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private GHIssueImport(final Builder builder) {
+        title = builder.title;
+        body = builder.body;
+        createdAt = builder.createdAt;
+        closedAt = builder.closedAt;
+        closed = builder.closed;
+        assignee = builder.assignee;
+        milestone = builder.milestone;
+        labels = Collections.unmodifiableList(new ArrayList<>(builder.labels));
+        comments = Collections.unmodifiableList(new ArrayList<>(builder.comments));
+    }
+
+    /**
+     * Builder used to instantiate {@link GHIssueImport}.
+     */
+    public static final class Builder extends AbstractBuilder<GHIssueImport> {
+        private final String title;
+        private final String body;
+        private Date createdAt;
+        private Date closedAt;
+        private boolean closed;
+        private String assignee;
+        private GHMilestone milestone;
+        private final List<GHLabel> labels = new ArrayList<>();
+        private final List<Comment> comments = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param title Title of the issue
+         * @param body  Description of the issue
+         */
+        public Builder(final String title, final String body) {
+            this.title = title;
+            this.body = body;
+        }
+
+        /**
+         * @param createdAt When the issue was created. By default, the time of the import is used.
+         * @return This object
+         */
+        public Builder createdAt(final Date createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        /**
+         * @param closed Whether the issue is closed. Default is <code>false</code>.
+         * @return This object
+         */
+        public Builder closed(final boolean closed) {
+            this.closed = closed;
+            return this;
+        }
+
+        /**
+         * @param closedAt When the issue was closed, if it is closed. By default, the time of the import is used.
+         * @return This object
+         */
+        public Builder closedAt(final Date closedAt) {
+            this.closedAt = closedAt;
+            return this;
+        }
+
+        /**
+         * @param assignee GitHub username of the assignee, or <code>null</code> for none
+         * @return This object
+         */
+        public Builder assignee(final String assignee) {
+            this.assignee = assignee;
+            return this;
+        }
+
+        /**
+         * @param milestone The milestone, or <code>null</code> for none
+         * @return This object
+         */
+        public Builder milestone(final GHMilestone milestone) {
+            this.milestone = milestone;
+            return this;
+        }
+
+        /**
+         * @param labels Labels to add to the issue. They must already exist in the repository.
+         * @return This object
+         */
+        public Builder labels(final Collection<GHLabel> labels) {
+            this.labels.addAll(labels);
+            return this;
+        }
+
+        /**
+         * Add a comment, after any comments added before.
+         *
+         * @param body      The contents of the comment. Supports Markdown.
+         * @param createdAt When the comment was written. By default, the time of the import is used.
+         * @return This object
+         */
+        public Builder comment(final String body, final Date createdAt) {
+            comments.add(new Comment(body, createdAt));
+            return this;
+        }
+
+        @Override
+        public GHIssueImport build() {
+            return new GHIssueImport(this);
+        }
+    }
+
+    /**
+     * A comment on an imported issue.
+     */
+    public static final class Comment {
+        private final String body;
+        private final Date createdAt;
+
+        /**
+         * Constructor.
+         *
+         * @param body      The contents of the comment
+         * @param createdAt When the comment was written, or <code>null</code>
+         */
+        private Comment(final String body, final Date createdAt) {
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * @return The contents of the comment
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return When the comment was written, or <code>null</code> if not given
+         */
+        public Date getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    /**
+     * @return Title of the issue
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return Description of the issue
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return When the issue was created, or <code>null</code> if not given
+     */
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return When the issue was closed, or <code>null</code> if not given
+     */
+    public Date getClosedAt() {
+        return closedAt;
+    }
+
+    /**
+     * @return <code>true</code> if the issue is closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return GitHub username of the assignee, or <code>null</code> for none
+     */
+    public String getAssignee() {
+        return assignee;
+    }
+
+    /**
+     * @return The milestone, or <code>null</code> for none
+     */
+    public GHMilestone getMilestone() {
+        return milestone;
+    }
+
+    /**
+     * @return Labels to add to the issue
+     */
+    public List<GHLabel> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return Comments, oldest first
+     */
+    public List<Comment> getComments() {
+        return comments;
+    }
+
+    /**
+     * @return The request body expected by the GitHub issue import API
+     * @see <a href="https://gist.github.com/jonmagic/5282384165e0f86ef105">Issue import API</a>
+     */
+    JsonObject toJson() {
+        JsonObjectBuilder issue = Json.createObjectBuilder()
+                .add("title", title)
+                .add("body", body)
+                .add("closed", closed);
+        if (createdAt != null) {
+            issue.add("created_at", format(createdAt));
+        }
+        if (closed && closedAt != null) {
+            issue.add("closed_at", format(closedAt));
+        }
+        if (assignee != null) {
+            issue.add("assignee", assignee);
+        }
+        if (milestone != null) {
+            issue.add("milestone", milestone.getNumber());
+        }
+        JsonArrayBuilder labelNames = Json.createArrayBuilder();
+        labels.forEach(label -> labelNames.add(label.getName()));
+        issue.add("labels", labelNames);
+
+        JsonArrayBuilder commentArray = Json.createArrayBuilder();
+        for (Comment comment : comments) {
+            JsonObjectBuilder json = Json.createObjectBuilder().add("body", comment.getBody());
+            if (comment.getCreatedAt() != null) {
+                json.add("created_at", format(comment.getCreatedAt()));
+            }
+            commentArray.add(json);
+        }
+        return Json.createObjectBuilder().add("issue", issue).add("comments", commentArray).build();
+    }
+
+    /**
+     * @param date A date
+     * @return The date in ISO 8601 format, in UTC
+     */
+    private static String format(final Date date) {
+        return DateTimeFormatter.ISO_INSTANT.format(date.toInstant());
+    }
+
+}
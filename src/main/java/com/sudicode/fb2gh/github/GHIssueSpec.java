@@ -0,0 +1,188 @@
+package com.sudicode.fb2gh.github;
+
+import com.sudicode.fb2gh.common.AbstractBuilder;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * An issue to be created, along with its labels, milestone and assignees, with {@link GHRepo#addIssue(GHIssueSpec)}.
+ * </p>
+ * <p>
+ * To instantiate, use the builder, like so:
+ * </p>
+ * <pre>
+ * GHIssueSpec spec = new GHIssueSpec.Builder("Title", "Description")
+ *     .labels(labels)
+ *     .milestone(milestone)
+ *     .assignee("octocat")
+ *     .build();
+ * </pre>
+ * <p>
+ * Instances are immutable.
+ * </p>
+ */
+public final class GHIssueSpec {
+
+    private final String title;
+    private final String body;
+    private final List<GHLabel> labels;
+    private final GHMilestone milestone;
+    private final List<String> assignees;
+    private final boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private GHIssueSpec(final Builder builder) {
+        title = builder.title;
+        body = builder.body;
+        labels = Collections.unmodifiableList(new ArrayList<>(builder.labels));
+        milestone = builder.milestone;
+        assignees = Collections.unmodifiableList(new ArrayList<>(builder.assignees));
+        closed = builder.closed;
+    }
+
+    /**
+     * Builder used to instantiate {@link GHIssueSpec}.
+     */
+    public static final class Builder extends AbstractBuilder<GHIssueSpec> {
+        private final String title;
+        private final String body;
+        private final List<GHLabel> labels = new ArrayList<>();
+        private GHMilestone milestone;
+        private final List<String> assignees = new ArrayList<>();
+        private boolean closed;
+
+        /**
+         * Constructor.
+         *
+         * @param title Title of the issue
+         * @param body  Description of the issue
+         */
+        public Builder(final String title, final String body) {
+            this.title = title;
+            this.body = body;
+        }
+
+        /**
+         * @param labels Labels to add to the issue
+         * @return This object
+         */
+        public Builder labels(final Collection<GHLabel> labels) {
+            this.labels.addAll(labels);
+            return this;
+        }
+
+        /**
+         * @param milestone The milestone to add the issue to, or <code>null</code> for none. <em>NOTE: Only users
+         *                  with push access can set the milestone for issues. The milestone is silently dropped
+         *                  otherwise.</em>
+         * @return This object
+         */
+        public Builder milestone(final GHMilestone milestone) {
+            this.milestone = milestone;
+            return this;
+        }
+
+        /**
+         * @param ghUsername GitHub username to assign the issue to. May be called more than once.
+         * @return This object
+         */
+        public Builder assignee(final String ghUsername) {
+            this.assignees.add(ghUsername);
+            return this;
+        }
+
+        /**
+         * @param closed Whether to close the issue as soon as it is created. Default is <code>false</code>.
+         * @return This object
+         */
+        public Builder closed(final boolean closed) {
+            this.closed = closed;
+            return this;
+        }
+
+        @Override
+        public GHIssueSpec build() {
+            return new GHIssueSpec(this);
+        }
+    }
+
+    /**
+     * @return Title of the issue
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return Description of the issue
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return Labels to add to the issue
+     */
+    public List<GHLabel> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return The milestone to add the issue to, or <code>null</code> for none
+     */
+    public GHMilestone getMilestone() {
+        return milestone;
+    }
+
+    /**
+     * @return GitHub usernames to assign the issue to
+     */
+    public List<String> getAssignees() {
+        return assignees;
+    }
+
+    /**
+     * @return <code>true</code> if the issue should be closed as soon as it is created
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return The request body expected when creating an issue. The state cannot be given when creating an issue, so
+     * it is not included.
+     * @see <a href="https://developer.github.com/v3/issues/#create-an-issue">Create an issue</a>
+     */
+    JsonObject toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("title", title)
+                .add("body", body);
+        if (!labels.isEmpty()) {
+            JsonArrayBuilder labelNames = Json.createArrayBuilder();
+            labels.forEach(label -> labelNames.add(label.getName()));
+            json.add("labels", labelNames);
+        }
+        if (milestone != null) {
+            json.add("milestone", milestone.getNumber());
+        }
+        if (!assignees.isEmpty()) {
+            JsonArrayBuilder usernames = Json.createArrayBuilder();
+            assignees.forEach(usernames::add);
+            json.add("assignees", usernames);
+        }
+        return json.build();
+    }
+
+}
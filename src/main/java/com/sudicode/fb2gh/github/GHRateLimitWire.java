@@ -0,0 +1,63 @@
+package com.sudicode.fb2gh.github;
+
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link Wire} which paces requests with a {@link GHRateLimiter}, and sends a request again if GitHub rejected it
+ * because of a rate limit.
+ * <p>
+ * This class is public only so that it can be instantiated by {@link Request#through(Class, Object...)}.
+ * </p>
+ */
+public final class GHRateLimitWire implements Wire {
+
+    /**
+     * Maximum number of times a request is sent.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Logger logger = LoggerFactory.getLogger(GHRateLimitWire.class);
+
+    private final Wire origin;
+    private final GHRateLimiter rateLimiter;
+
+    /**
+     * Constructor.
+     *
+     * @param origin      The original wire
+     * @param rateLimiter The rate limiter to pace requests with
+     */
+    public GHRateLimitWire(final Wire origin, final GHRateLimiter rateLimiter) {
+        this.origin = origin;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Response send(final Request req, final String home, final String method,
+                         final Collection<Map.Entry<String, String>> headers, final InputStream content,
+                         final int connect, final int read) throws IOException {
+        // The body can only be sent again if it can be rewound
+        if (content.markSupported()) {
+            content.mark(Integer.MAX_VALUE);
+        }
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire(method);
+            Response response = origin.send(req, home, method, headers, content, connect, read);
+            boolean limited = rateLimiter.update(response.status(), response.headers(), System.currentTimeMillis());
+            if (!limited || attempt == MAX_ATTEMPTS || !content.markSupported()) {
+                return response;
+            }
+            logger.warn("GitHub rate limit hit by {} {}, sending again.", method, home);
+            content.reset();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.sudicode.fb2gh.github;
+
+import com.sudicode.fb2gh.common.FB2GHUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Paces requests to the GitHub API according to the rate limit GitHub reports in each response.
+ * </p>
+ * <p>
+ * The <code>X-RateLimit-Remaining</code> and <code>X-RateLimit-Reset</code> headers give the budget for the primary
+ * rate limit. Requests are sent as fast as possible while the budget is plentiful, spread evenly over the rest of
+ * the window once it runs low, and held until the reset once it runs out. A <code>Retry-After</code> header, sent
+ * when a secondary rate limit is hit, holds every request for as long as it says. Requests which create content
+ * (anything other than <code>GET</code> and <code>HEAD</code>) are additionally spaced apart, as GitHub requires to
+ * stay under its secondary rate limits.
+ * </p>
+ * <p>
+ * Use {@link GitHub#getRateLimiter()} to obtain the rate limiter of a connection. This class is thread-safe.
+ * </p>
+ *
+ * @see <a href="https://developer.github.com/v3/#rate-limiting">Rate limiting</a>
+ * @see <a href="https://developer.github.com/v3/guides/best-practices-for-integrators/">Best practices for
+ * integrators</a>
+ */
+public final class GHRateLimiter {
+
+    /**
+     * Default minimum time between requests which create content.
+     */
+    static final Duration DEFAULT_WRITE_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Once fewer requests than this remain, they are spread evenly until the reset.
+     */
+    private static final int LOW_BUDGET = 100;
+
+    private final long writeInterval;
+    private int limit = -1;
+    private int remaining = -1;
+    private long resetAt;
+    private long blockedUntil;
+    private long nextRequestAt;
+    private long nextWriteAt;
+
+    /**
+     * Constructor which spaces requests that create content by {@link #DEFAULT_WRITE_INTERVAL}.
+     */
+    GHRateLimiter() {
+        this(DEFAULT_WRITE_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param writeInterval Minimum time between requests which create content
+     */
+    GHRateLimiter(final Duration writeInterval) {
+        this.writeInterval = writeInterval.toMillis();
+    }
+
+    /**
+     * @return Maximum number of requests per window, or <code>-1</code> if not known yet
+     */
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Number of requests remaining in the current window, or <code>-1</code> if not known
+     */
+    public synchronized int getRemaining() {
+        return resetAt > System.currentTimeMillis() ? remaining : -1;
+    }
+
+    /**
+     * @return When the current window ends, or <code>null</code> if not known
+     */
+    public synchronized Instant getReset() {
+        return resetAt > System.currentTimeMillis() ? Instant.ofEpochMilli(resetAt) : null;
+    }
+
+    /**
+     * @return When requests may resume after a secondary rate limit was hit, or <code>null</code> if they may be sent
+     * now
+     */
+    public synchronized Instant getRetryAfter() {
+        return blockedUntil > System.currentTimeMillis() ? Instant.ofEpochMilli(blockedUntil) : null;
+    }
+
+    /**
+     * Wait until a request may be sent.
+     *
+     * @param method The HTTP method of the request
+     */
+    void acquire(final String method) {
+        FB2GHUtils.sleepQuietly(reserve(method, System.currentTimeMillis()));
+    }
+
+    /**
+     * Reserve a time slot for a request, counting it against the budget.
+     *
+     * @param method The HTTP method of the request
+     * @param now    The current time, in milliseconds since the epoch
+     * @return Number of milliseconds to wait before sending the request
+     */
+    synchronized long reserve(final String method, final long now) {
+        long start = Math.max(now, blockedUntil);
+        if (resetAt > start && remaining == 0) {
+            start = resetAt;
+        } else if (resetAt > start && remaining > 0) {
+            if (remaining < LOW_BUDGET) {
+                start = Math.max(start, nextRequestAt);
+                nextRequestAt = start + (resetAt - start) / remaining;
+            }
+            remaining--;
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            start = Math.max(start, nextWriteAt);
+            nextWriteAt = start + writeInterval;
+        }
+        return start - now;
+    }
+
+    /**
+     * @param now The current time, in milliseconds since the epoch
+     * @return The earliest time a request could be sent without waiting for the rate limit to reset
+     */
+    synchronized long availableAt(final long now) {
+        long at = Math.max(now, blockedUntil);
+        return resetAt > at && remaining == 0 ? resetAt : at;
+    }
+
+    /**
+     * @param now The current time, in milliseconds since the epoch
+     * @return Number of requests remaining in the current window, or {@link Integer#MAX_VALUE} if not known
+     */
+    synchronized int budget(final long now) {
+        return resetAt > now && remaining >= 0 ? remaining : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Update the budget from the headers of a response.
+     *
+     * @param status  HTTP status code of the response
+     * @param headers Headers of the response
+     * @param now     The current time, in milliseconds since the epoch
+     * @return <code>true</code> if the request was rejected because of a rate limit, and should be sent again
+     */
+    synchronized boolean update(final int status, final Map<String, List<String>> headers, final long now) {
+        int newLimit = NumberUtils.toInt(GHUtils.header(headers, "X-RateLimit-Limit"), -1);
+        int newRemaining = NumberUtils.toInt(GHUtils.header(headers, "X-RateLimit-Remaining"), -1);
+        long newReset = NumberUtils.toLong(GHUtils.header(headers, "X-RateLimit-Reset"), -1);
+        if (newRemaining >= 0 && newReset >= 0) {
+            limit = newLimit;
+            // Responses may arrive out of order, so keep the lowest count within a window. A 304 response does not
+            // count against the rate limit, so it gives back the request reserved for it.
+            boolean keepLowest = newReset * 1000 == resetAt && status != HttpURLConnection.HTTP_NOT_MODIFIED;
+            remaining = keepLowest ? Math.min(remaining, newRemaining) : newRemaining;
+            resetAt = newReset * 1000;
+        }
+        long retryAfter = NumberUtils.toLong(GHUtils.header(headers, "Retry-After"), -1);
+        if (retryAfter >= 0) {
+            blockedUntil = Math.max(blockedUntil, now + retryAfter * 1000);
+        }
+
+        if (status == 429) {
+            return true;
+        }
+        return status == 403 && (retryAfter >= 0 || newRemaining == 0);
+    }
+
+}
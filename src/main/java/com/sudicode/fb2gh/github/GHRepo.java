@@ -3,6 +3,7 @@ package com.sudicode.fb2gh.github;
 import com.sudicode.fb2gh.FB2GHException;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GitHub repository.
@@ -45,6 +46,74 @@ public interface GHRepo {
      */
     GHIssue addIssue(final String title, final String description) throws FB2GHException;
 
+    /**
+     * Create an issue along with its labels, milestone and assignees. Implementations send all of these in the
+     * request which creates the issue. Closing the issue takes a second request.
+     * <p>
+     * By default, the issue is created with {@link #addIssue(String, String)}, and then each attribute is set with
+     * a request of its own.
+     * </p>
+     *
+     * @param spec The issue to create
+     * @return The created issue
+     * @throws FB2GHException if a GitHub error occurs
+     */
+    default GHIssue addIssue(final GHIssueSpec spec) throws FB2GHException {
+        GHIssue issue = addIssue(spec.getTitle(), spec.getBody());
+        if (!spec.getLabels().isEmpty()) {
+            issue.addLabels(spec.getLabels());
+        }
+        if (spec.getMilestone() != null) {
+            issue.setMilestone(spec.getMilestone());
+        }
+        for (String assignee : spec.getAssignees()) {
+            issue.assignTo(assignee);
+        }
+        if (spec.isClosed()) {
+            issue.close();
+        }
+        return issue;
+    }
+
+    /**
+     * Create an issue along with its comments, labels, milestone, assignee and state. Implementations which support
+     * GitHub's issue import API submit the whole issue in one request and return at once; the returned
+     * {@link CompletableFuture} completes when GitHub has finished creating the issue.
+     * <p>
+     * By default, the issue is created with one request per comment and attribute, before this method returns.
+     * Original timestamps are not kept in that case.
+     * </p>
+     *
+     * @param issueImport The issue to create
+     * @return A {@link CompletableFuture} which completes with the created issue, or with the
+     * {@link FB2GHException} which caused it to fail
+     */
+    default CompletableFuture<GHIssue> importIssue(final GHIssueImport issueImport) {
+        CompletableFuture<GHIssue> future = new CompletableFuture<>();
+        try {
+            GHIssue issue = addIssue(issueImport.getTitle(), issueImport.getBody());
+            if (!issueImport.getLabels().isEmpty()) {
+                issue.addLabels(issueImport.getLabels());
+            }
+            if (issueImport.getMilestone() != null) {
+                issue.setMilestone(issueImport.getMilestone());
+            }
+            for (GHIssueImport.Comment comment : issueImport.getComments()) {
+                issue.addComment(comment.getBody());
+            }
+            if (issueImport.isClosed()) {
+                issue.close();
+            }
+            if (issueImport.getAssignee() != null) {
+                issue.assignTo(issueImport.getAssignee());
+            }
+            future.complete(issue);
+        } catch (FB2GHException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * Get an issue by number.
      *
@@ -1,16 +1,27 @@
 package com.sudicode.fb2gh.github;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.net.HttpHeaders;
 import com.jcabi.github.Label;
 import com.jcabi.github.Milestone;
 import com.jcabi.github.Repo;
+import com.jcabi.http.Request;
+import com.jcabi.http.response.JsonResponse;
+import com.jcabi.http.response.RestResponse;
 import com.sudicode.fb2gh.FB2GHException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.json.JsonObject;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link GHRepo} implementation.
@@ -19,7 +30,25 @@ class GHRepoImpl implements GHRepo {
 
     private static final Logger logger = LoggerFactory.getLogger(GHRepoImpl.class);
 
+    /**
+     * Media type which enables the issue import API, which is in preview.
+     */
+    private static final String IMPORT_MEDIA_TYPE = "application/vnd.github.golden-comet-preview+json";
+    private static final Duration DEFAULT_IMPORT_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final long MAX_IMPORT_POLL_INTERVAL_MILLIS = 16 * 1000;
+
+    /**
+     * Checks on the status of imports. Polling is cheap, so a single thread serves every repository.
+     */
+    private static final ScheduledExecutorService importPoller = Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "fb2gh-import-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final Repo.Smart repo;
+    private final long importPollIntervalMillis;
 
     /**
      * Constructor.
@@ -27,7 +56,19 @@ class GHRepoImpl implements GHRepo {
      * @param repo The {@link Repo} instance used to access the repository.
      */
     GHRepoImpl(final Repo repo) {
+        this(repo, DEFAULT_IMPORT_POLL_INTERVAL);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param repo               The {@link Repo} instance used to access the repository.
+     * @param importPollInterval How long to wait before first checking whether an import has finished. The wait
+     *                           doubles after each check, up to 16 seconds.
+     */
+    GHRepoImpl(final Repo repo, final Duration importPollInterval) {
         this.repo = new Repo.Smart(repo);
+        this.importPollIntervalMillis = importPollInterval.toMillis();
     }
 
     @Override
@@ -75,6 +116,131 @@ class GHRepoImpl implements GHRepo {
         }
     }
 
+    /**
+     * Create the issue with a single request which includes its labels, milestone and assignees, followed by a
+     * second request to close it if required.
+     *
+     * @param spec The issue to create
+     * @return The created issue
+     * @throws FB2GHException if a GitHub error occurs
+     */
+    @Override
+    public GHIssue addIssue(final GHIssueSpec spec) throws FB2GHException {
+        try {
+            JsonObject created = repo.github().entry()
+                    .uri().path("/repos").path(getOwner()).path(getName()).path("/issues").back()
+                    .method(Request.POST)
+                    .body().set(spec.toJson()).back()
+                    .fetch()
+                    .as(RestResponse.class)
+                    .assertStatus(HttpURLConnection.HTTP_CREATED)
+                    .as(JsonResponse.class)
+                    .json().readObject();
+            GHIssue issue = getIssue(created.getInt("number"));
+            if (spec.isClosed()) {
+                issue.close();
+            }
+            return issue;
+        } catch (AssertionError e) {
+            throw GHUtils.rethrow(e);
+        } catch (IOException e) {
+            throw new FB2GHException(e);
+        }
+    }
+
+    /**
+     * Submit the issue to GitHub's issue import API, then check on the import in the background until it has
+     * finished.
+     *
+     * @param issueImport The issue to create
+     * @return A {@link CompletableFuture} which completes with the created issue, or with the
+     * {@link FB2GHException} which caused it to fail
+     * @see <a href="https://gist.github.com/jonmagic/5282384165e0f86ef105">Issue import API</a>
+     */
+    @Override
+    public CompletableFuture<GHIssue> importIssue(final GHIssueImport issueImport) {
+        CompletableFuture<GHIssue> future = new CompletableFuture<>();
+        try {
+            JsonObject status = importRequest()
+                    .method(Request.POST)
+                    .body().set(issueImport.toJson()).back()
+                    .fetch()
+                    .as(RestResponse.class)
+                    .assertStatus(HttpURLConnection.HTTP_ACCEPTED)
+                    .as(JsonResponse.class)
+                    .json().readObject();
+            int id = status.getInt("id");
+            logger.debug("Submitted import {} for issue '{}'", id, issueImport.getTitle());
+            pollImport(future, id, importPollIntervalMillis);
+        } catch (AssertionError e) {
+            future.completeExceptionally(toException(e));
+        } catch (IOException e) {
+            future.completeExceptionally(new FB2GHException(e));
+        }
+        return future;
+    }
+
+    /**
+     * Check on an import after a delay, and keep checking, with growing delays, until it has finished.
+     *
+     * @param future Completed when the import has finished
+     * @param id     ID of the import
+     * @param delay  Number of milliseconds to wait before checking
+     */
+    private void pollImport(final CompletableFuture<GHIssue> future, final int id, final long delay) {
+        importPoller.schedule(() -> {
+            try {
+                JsonObject status = importRequest()
+                        .uri().path(String.valueOf(id)).back()
+                        .fetch()
+                        .as(RestResponse.class)
+                        .assertStatus(HttpURLConnection.HTTP_OK)
+                        .as(JsonResponse.class)
+                        .json().readObject();
+                switch (status.getString("status")) {
+                    case "imported":
+                        String issueUrl = status.getString("issue_url");
+                        int number = Integer.parseInt(issueUrl.substring(issueUrl.lastIndexOf('/') + 1));
+                        logger.debug("Import {} created issue #{}", id, number);
+                        future.complete(getIssue(number));
+                        break;
+                    case "failed":
+                        future.completeExceptionally(new FB2GHException("Import " + id + " failed: "
+                                + status.get("errors")));
+                        break;
+                    default:
+                        pollImport(future, id, Math.min(delay * 2, MAX_IMPORT_POLL_INTERVAL_MILLIS));
+                }
+            } catch (AssertionError e) {
+                future.completeExceptionally(toException(e));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(new FB2GHException("Could not check on import " + id, e));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return A request to this repository's issue import API
+     */
+    private Request importRequest() {
+        return repo.github().entry()
+                .reset(HttpHeaders.ACCEPT)
+                .header(HttpHeaders.ACCEPT, IMPORT_MEDIA_TYPE)
+                .uri().path("/repos").path(getOwner()).path(getName()).path("/import/issues").back();
+    }
+
+    /**
+     * @param e An {@link AssertionError} from the GitHub library
+     * @return The {@link FB2GHException} which {@link GHUtils#rethrow(AssertionError)} translates it to
+     */
+    private static FB2GHException toException(final AssertionError e) {
+        try {
+            throw GHUtils.rethrow(e);
+        } catch (FB2GHException ex) {
+            return ex;
+        }
+    }
+
     @Override
     public GHIssue getIssue(final int number) {
         return new GHIssue(repo.issues().get(number));
@@ -0,0 +1,114 @@
+package com.sudicode.fb2gh.github;
+
+import com.google.common.net.HttpHeaders;
+import com.jcabi.http.Request;
+import com.jcabi.http.Response;
+import com.jcabi.http.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Wire} which authenticates each request with one of several OAuth tokens, each paced by a
+ * {@link GHRateLimiter} of its own.
+ * <p>
+ * Requests which create content are always sent with the first token, so that everything migrated is attributed to
+ * the same account. Other requests are sent with whichever token has the most requests remaining. A token which has
+ * run out, or hit a secondary rate limit, is skipped until it recovers, unless every token is in the same state.
+ * </p>
+ * <p>
+ * This class is public only so that it can be instantiated by {@link Request#through(Class, Object...)}.
+ * </p>
+ */
+public final class GHTokenPoolWire implements Wire {
+
+    /**
+     * Maximum number of times a request is sent.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Logger logger = LoggerFactory.getLogger(GHTokenPoolWire.class);
+
+    private final Wire origin;
+    private final List<Map.Entry<String, GHRateLimiter>> tokens;
+
+    /**
+     * Constructor.
+     *
+     * @param origin The original wire
+     * @param tokens OAuth tokens, in order of preference, mapped to the rate limiters which pace them
+     * @throws IllegalArgumentException if <code>tokens</code> is empty
+     */
+    public GHTokenPoolWire(final Wire origin, final LinkedHashMap<String, GHRateLimiter> tokens) {
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("At least one token is required.");
+        }
+        this.origin = origin;
+        this.tokens = new ArrayList<>(tokens.entrySet());
+    }
+
+    @Override
+    public Response send(final Request req, final String home, final String method,
+                         final Collection<Map.Entry<String, String>> headers, final InputStream content,
+                         final int connect, final int read) throws IOException {
+        // The body can only be sent again if it can be rewound
+        if (content.markSupported()) {
+            content.mark(Integer.MAX_VALUE);
+        }
+        for (int attempt = 1; ; attempt++) {
+            Map.Entry<String, GHRateLimiter> token = select(method);
+            GHRateLimiter rateLimiter = token.getValue();
+            rateLimiter.acquire(method);
+            Response response = origin.send(req, home, method, authorize(headers, token.getKey()), content, connect,
+                    read);
+            boolean limited = rateLimiter.update(response.status(), response.headers(), System.currentTimeMillis());
+            if (!limited || attempt == MAX_ATTEMPTS || !content.markSupported()) {
+                return response;
+            }
+            logger.warn("GitHub rate limit hit by {} {}, sending again.", method, home);
+            content.reset();
+        }
+    }
+
+    /**
+     * @param method The HTTP method of a request
+     * @return The token to send the request with, along with its rate limiter
+     */
+    private Map.Entry<String, GHRateLimiter> select(final String method) {
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return tokens.get(0);
+        }
+        long now = System.currentTimeMillis();
+        Comparator<Map.Entry<String, GHRateLimiter>> soonest = Comparator.comparingLong(
+                token -> token.getValue().availableAt(now));
+        Comparator<Map.Entry<String, GHRateLimiter>> mostRemaining = Comparator.comparingInt(
+                token -> -token.getValue().budget(now));
+        return tokens.stream().min(soonest.thenComparing(mostRemaining)).orElseThrow(AssertionError::new);
+    }
+
+    /**
+     * @param headers Request headers
+     * @param token   An OAuth token
+     * @return The request headers, with any <code>Authorization</code> header replaced by one for the token
+     */
+    private static Collection<Map.Entry<String, String>> authorize(final Collection<Map.Entry<String, String>> headers,
+                                                                   final String token) {
+        List<Map.Entry<String, String>> authorized = new ArrayList<>(headers.size() + 1);
+        for (Map.Entry<String, String> header : headers) {
+            if (!HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.getKey())) {
+                authorized.add(header);
+            }
+        }
+        authorized.add(new AbstractMap.SimpleImmutableEntry<>(HttpHeaders.AUTHORIZATION, "token " + token));
+        return authorized;
+    }
+
+}
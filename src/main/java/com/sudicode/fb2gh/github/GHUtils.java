@@ -8,6 +8,8 @@ import org.slf4j.LoggerFactory;
 import javax.json.Json;
 import javax.json.JsonReader;
 import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Utility methods for the GitHub API.
@@ -62,4 +64,18 @@ final class GHUtils {
         }
     }
 
+    /**
+     * @param headers Response headers
+     * @param name    Name of a header, which is matched regardless of case
+     * @return The first value of the header, or <code>null</code> if absent
+     */
+    static String header(final Map<String, List<String>> headers, final String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0).trim();
+            }
+        }
+        return null;
+    }
+
 }
@@ -18,4 +18,18 @@ public interface GitHub {
      */
     GHRepo getRepo(String repoOwner, String repoName);
 
+    /**
+     * Every request made through this connection is paced by its rate limiter, which also reports how much of the
+     * GitHub rate limit remains.
+     * <p>
+     * By default, returns <code>null</code>, for connections whose requests are not rate limited.
+     * </p>
+     *
+     * @return The rate limiter of this connection, or <code>null</code> if its requests are not rate limited. If it
+     * authenticates with several tokens, this is the rate limiter of the token used to create content.
+     */
+    default GHRateLimiter getRateLimiter() {
+        return null;
+    }
+
 }
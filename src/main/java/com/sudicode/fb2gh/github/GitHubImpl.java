@@ -2,20 +2,31 @@ package com.sudicode.fb2gh.github;
 
 import com.jcabi.github.Coordinates;
 import com.jcabi.github.RtGithub;
-import com.jcabi.github.wire.RetryCarefulWire;
+import com.jcabi.http.Request;
+import com.jcabi.http.wire.RetryWire;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
 
 /**
  * {@link GitHub} implementation.
  */
 class GitHubImpl implements GitHub {
 
+    /**
+     * Maximum number of responses kept for conditional requests.
+     */
+    private static final int CACHE_SIZE = 500;
+
+    private final GHRateLimiter rateLimiter;
     private final RtGithub connector;
 
     /**
      * Constructor which does not authenticate.
      */
     GitHubImpl() {
-        connector = new RtGithub(new RtGithub().entry().through(RetryCarefulWire.class, 50));
+        rateLimiter = new GHRateLimiter();
+        connector = connect(paced(new RtGithub().entry(), rateLimiter));
     }
 
     /**
@@ -25,7 +36,8 @@ class GitHubImpl implements GitHub {
      * @see <a href="https://developer.github.com/v3/oauth/">OAuth</a>
      */
     GitHubImpl(final String token) {
-        connector = new RtGithub(new RtGithub(token).entry().through(RetryCarefulWire.class, 50));
+        rateLimiter = new GHRateLimiter();
+        connector = connect(paced(new RtGithub(token).entry(), rateLimiter));
     }
 
     /**
@@ -35,7 +47,59 @@ class GitHubImpl implements GitHub {
      * @param password GitHub password
      */
     GitHubImpl(final String username, final String password) {
-        connector = new RtGithub(new RtGithub(username, password).entry().through(RetryCarefulWire.class, 50));
+        rateLimiter = new GHRateLimiter();
+        connector = connect(paced(new RtGithub(username, password).entry(), rateLimiter));
+    }
+
+    /**
+     * Constructor which authenticates via a pool of OAuth tokens.
+     *
+     * @param tokens The OAuth tokens. Requests which create content are sent with the first one.
+     * @throws IllegalArgumentException if <code>tokens</code> is empty
+     * @see GHTokenPoolWire
+     */
+    GitHubImpl(final Collection<String> tokens) {
+        LinkedHashMap<String, GHRateLimiter> pool = new LinkedHashMap<>();
+        tokens.forEach(token -> pool.put(token, new GHRateLimiter()));
+        if (pool.isEmpty()) {
+            throw new IllegalArgumentException("At least one token is required.");
+        }
+        rateLimiter = pool.values().iterator().next();
+        connector = new RtGithub(pooled(new RtGithub().entry(), pool));
+    }
+
+    /**
+     * @param entry       The entry point of the connection
+     * @param rateLimiter The rate limiter to pace requests with
+     * @return The entry point, with requests paced by <code>rateLimiter</code>. Requests which fail with an
+     * {@link java.io.IOException} or a <code>5xx</code> response are sent again by a {@link RetryWire} below it.
+     */
+    static Request paced(final Request entry, final GHRateLimiter rateLimiter) {
+        return entry.through(RetryWire.class).through(GHRateLimitWire.class, rateLimiter);
+    }
+
+    /**
+     * @param entry The entry point of the connection, with authentication and rate limiting in place
+     * @return A GitHub client which makes its <code>GET</code> requests conditional through a
+     * {@link GHConditionalCacheWire}
+     */
+    private static RtGithub connect(final Request entry) {
+        return new RtGithub(entry.through(GHConditionalCacheWire.class, CACHE_SIZE));
+    }
+
+    /**
+     * The token is only chosen by the {@link GHTokenPoolWire}, so the {@link GHConditionalCacheWire} is placed below
+     * it, where it sees the <code>Authorization</code> header and so keeps responses per token.
+     *
+     * @param entry The entry point of the connection
+     * @param pool  OAuth tokens, in order of preference, mapped to the rate limiters which pace them
+     * @return The entry point, with conditional requests and authentication through the pool of tokens in place.
+     * Requests which fail with an {@link java.io.IOException} or a <code>5xx</code> response are sent again by a
+     * {@link RetryWire} below them.
+     */
+    static Request pooled(final Request entry, final LinkedHashMap<String, GHRateLimiter> pool) {
+        return entry.through(RetryWire.class).through(GHConditionalCacheWire.class, CACHE_SIZE)
+                .through(GHTokenPoolWire.class, pool);
     }
 
     @Override
@@ -43,4 +107,9 @@ class GitHubImpl implements GitHub {
         return new GHRepoImpl(connector.repos().get(new Coordinates.Simple(repoOwner, repoName)));
     }
 
+    @Override
+    public GHRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
 }
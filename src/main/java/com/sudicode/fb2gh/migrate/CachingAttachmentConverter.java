@@ -0,0 +1,129 @@
+package com.sudicode.fb2gh.migrate;
+
+import com.sudicode.fb2gh.common.PersistentStringMap;
+import com.sudicode.fb2gh.fogbugz.FBAttachment;
+import com.sudicode.fb2gh.fogbugz.FogBugz;
+import com.sudicode.fb2gh.github.GHRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * {@link FBAttachmentConverter} which remembers the URL that another {@link FBAttachmentConverter} produced for each
+ * attachment, in a file which is kept between runs. When a migration is run again or resumed, attachments which were
+ * already converted are not converted again, so nothing is downloaded or uploaded for them.
+ * </p>
+ * <p>
+ * Attachments are identified by the FogBugz base URL and their relative URL, which includes the attachment number,
+ * together with the GitHub repository they are migrated to, as a URL produced for one repository may not resolve in
+ * another. URLs which contain the FogBugz token (for example, the original FogBugz URL returned when an upload fails)
+ * are not remembered, so that those attachments are tried again next time.
+ * </p>
+ * <pre>
+ * try (GHAttachmentUploader uploader = new GHAttachmentUploader(username, password, repo, Browser.CHROME);
+ *      CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, repo,
+ *              Paths.get("attachments.tsv"))) {
+ *     new Migrator.Builder(fogBugz, cases, repo)
+ *         .fbAttachmentConverter(converter)
+ *         .build()
+ *         .migrate();
+ * }
+ * </pre>
+ * <p>
+ * Instances are thread-safe, provided that the delegate is.
+ * </p>
+ */
+public class CachingAttachmentConverter implements FBAttachmentConverter, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingAttachmentConverter.class);
+
+    private final FBAttachmentConverter delegate;
+    private final GHRepo ghRepo;
+    private final PersistentStringMap urls;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate The {@link FBAttachmentConverter} which converts attachments that have not been seen before
+     * @param ghRepo   The GitHub repository which attachments are migrated to
+     * @param file     The file which holds the URLs, which is created if it does not exist
+     * @throws IOException if the file cannot be read or created
+     */
+    public CachingAttachmentConverter(final FBAttachmentConverter delegate, final GHRepo ghRepo, final Path file)
+            throws IOException {
+        this.delegate = delegate;
+        this.ghRepo = ghRepo;
+        this.urls = new PersistentStringMap(file);
+    }
+
+    /**
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @return The key which identifies the attachment within the target repository
+     */
+    private String key(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        return ghRepo.getOwner() + "/" + ghRepo.getName() + " " + FBAttachmentDownloader.key(fogBugz, fbAttachment);
+    }
+
+    @Override
+    public String convert(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        String key = key(fogBugz, fbAttachment);
+        String url = urls.get(key);
+        if (url != null) {
+            logger.debug("Using cached URL '{}' for '{}'", url, fbAttachment.getFilename());
+            return url;
+        }
+        url = delegate.convert(fogBugz, fbAttachment);
+        String token = fogBugz.getAuthToken();
+        if (url != null && (token == null || token.isEmpty() || !url.contains(token))) {
+            try {
+                urls.put(key, url);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return url;
+    }
+
+    /**
+     * Pass on only the attachments which have not been converted before.
+     *
+     * @param fogBugz       The {@link FogBugz} instance that owns the attachments
+     * @param fbAttachments The attachments which are about to be converted
+     */
+    @Override
+    public void prepare(final FogBugz fogBugz, final Collection<FBAttachment> fbAttachments) {
+        List<FBAttachment> unseen = fbAttachments.stream()
+                .filter(fbAttachment -> urls.get(key(fogBugz, fbAttachment)) == null)
+                .collect(Collectors.toList());
+        if (!unseen.isEmpty()) {
+            delegate.prepare(fogBugz, unseen);
+        }
+    }
+
+    /**
+     * @return Number of remembered URLs
+     */
+    public int size() {
+        return urls.size();
+    }
+
+    /**
+     * Close the file which holds the URLs. The delegate is not closed.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        urls.close();
+    }
+
+}
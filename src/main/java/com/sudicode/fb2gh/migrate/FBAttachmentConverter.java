@@ -3,6 +3,8 @@ package com.sudicode.fb2gh.migrate;
 import com.sudicode.fb2gh.fogbugz.FBAttachment;
 import com.sudicode.fb2gh.fogbugz.FogBugz;
 
+import java.util.Collection;
+
 /**
  * By default, {@link Migrator} will reference FogBugz attachments using
  * their original FogBugz URLs. This may not be desired behavior, especially for
@@ -23,4 +25,17 @@ public interface FBAttachmentConverter {
      */
     String convert(FogBugz fogBugz, FBAttachment fbAttachment);
 
+    /**
+     * Called by {@link Migrator} with every attachment of a case, before any of them are converted. Implementations
+     * which download attachments can use this to start all of the downloads at once (see
+     * {@link FBAttachmentDownloader}), rather than one at a time in {@link #convert(FogBugz, FBAttachment)}. By
+     * default, this does nothing.
+     *
+     * @param fogBugz       The {@link FogBugz} instance that owns the attachments
+     * @param fbAttachments The attachments which are about to be converted
+     */
+    default void prepare(FogBugz fogBugz, Collection<FBAttachment> fbAttachments) {
+        // Do nothing by default.
+    }
+
 }
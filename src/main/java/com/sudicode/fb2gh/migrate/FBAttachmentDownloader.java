@@ -0,0 +1,569 @@
+package com.sudicode.fb2gh.migrate;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.sudicode.fb2gh.common.AbstractBuilder;
+import com.sudicode.fb2gh.common.FB2GHUtils;
+import com.sudicode.fb2gh.common.FileTooLargeException;
+import com.sudicode.fb2gh.fogbugz.FBAttachment;
+import com.sudicode.fb2gh.fogbugz.FogBugz;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Downloads FogBugz attachments in the background, so that a migration does not wait for each download in turn.
+ * </p>
+ * <p>
+ * Downloads run on a bounded pool of threads and are streamed straight to disk. Each attachment is saved under its
+ * own directory, named after a hash of its URL, so attachments which share a filename do not collide, and an
+ * attachment which has already been downloaded is not downloaded again. The FogBugz token is left out of the URL of a
+ * FogBugz attachment when it is hashed, so downloads are found again by a later run which uses a different token.
+ * While downloading, data is written to a <code>.part</code> file. If a download is interrupted, it is resumed from
+ * where it stopped, using an HTTP range request, both within the same run and in later runs.
+ * </p>
+ * <p>
+ * The SHA-256 hash of each file is computed while it is being downloaded, and saved next to it in a
+ * <code>.sha256</code> file, so that identical attachments can be recognized without reading them again. See
+ * {@link #getSha256(File)}.
+ * </p>
+ * <p>
+ * Files which will need to be compressed anyway can be compressed while they are downloaded, with
+ * {@link #downloadZipped(String, String, long)}, so that they are only written to disk once.
+ * </p>
+ * <p>
+ * To instantiate, use the builder, like so:
+ * </p>
+ * <pre>
+ * FBAttachmentDownloader downloader = new FBAttachmentDownloader.Builder()
+ *     .threads(8)
+ *     .directory(Paths.get("attachments"))
+ *     .build();
+ * Future&lt;File&gt; file = downloader.download(fogBugz, attachment);
+ * </pre>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ */
+public class FBAttachmentDownloader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FBAttachmentDownloader.class);
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_TIMEOUT = 100 * 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Maximum number of bytes transferred from the network to the file at once.
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Suffix of the file holding the hash of a downloaded file.
+     */
+    private static final String HASH_SUFFIX = ".sha256";
+
+    private final Path directory;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<File>> inProgress = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private FBAttachmentDownloader(final Builder builder) {
+        directory = builder.directory;
+        connectTimeout = builder.connectTimeout;
+        readTimeout = builder.readTimeout;
+        maxAttempts = builder.maxAttempts;
+        executor = Executors.newFixedThreadPool(builder.threads, runnable -> {
+            Thread thread = new Thread(runnable, "fb2gh-download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Builder used to instantiate {@link FBAttachmentDownloader}.
+     */
+    public static final class Builder extends AbstractBuilder<FBAttachmentDownloader> {
+        private int threads = DEFAULT_THREADS;
+        private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "fb2gh-attachments");
+        private int connectTimeout = DEFAULT_TIMEOUT;
+        private int readTimeout = DEFAULT_TIMEOUT;
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+        /**
+         * @param threads Maximum number of concurrent downloads. Default is 4.
+         * @return This object
+         * @throws IllegalArgumentException if <code>threads</code> is not positive
+         */
+        public Builder threads(final int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Threads must be positive.");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param directory Directory to download into. Default is <code>fb2gh-attachments</code> in the system
+         *                  temporary directory. Keeping the same directory between runs allows downloads to be
+         *                  resumed and reused.
+         * @return This object
+         */
+        public Builder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout Number of milliseconds to wait for a connection to be established. Zero means no
+         *                       timeout.
+         * @return This object
+         * @throws IllegalArgumentException if <code>connectTimeout</code> is negative
+         */
+        public Builder connectTimeout(final int connectTimeout) {
+            if (connectTimeout < 0) {
+                throw new IllegalArgumentException("Connect timeout cannot be negative.");
+            }
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param readTimeout Number of milliseconds to wait for data while downloading. Zero means no timeout.
+         * @return This object
+         * @throws IllegalArgumentException if <code>readTimeout</code> is negative
+         */
+        public Builder readTimeout(final int readTimeout) {
+            if (readTimeout < 0) {
+                throw new IllegalArgumentException("Read timeout cannot be negative.");
+            }
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxAttempts Number of times to try each download, resuming where the previous attempt stopped.
+         *                    Default is 3.
+         * @return This object
+         * @throws IllegalArgumentException if <code>maxAttempts</code> is not positive
+         */
+        public Builder maxAttempts(final int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("Max attempts must be positive.");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        @Override
+        public FBAttachmentDownloader build() {
+            return new FBAttachmentDownloader(this);
+        }
+    }
+
+    /**
+     * @return The directory files are downloaded into
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Schedule a FogBugz attachment to be downloaded.
+     *
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @return A {@link Future} which completes with the downloaded file, or with the {@link IOException} which caused
+     * the download to fail
+     * @see #download(String, String)
+     */
+    public Future<File> download(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        return download(key(fogBugz, fbAttachment), fbAttachment.getAbsoluteUrl(fogBugz), fbAttachment.getFilename());
+    }
+
+    /**
+     * Schedule a file to be downloaded. If the file has already been downloaded, the returned {@link Future} is
+     * already complete. If the same URL is already being downloaded, the same {@link Future} is returned.
+     *
+     * @param url      URL of the file
+     * @param filename Name to save the file under
+     * @return A {@link Future} which completes with the downloaded file, or with the {@link IOException} which caused
+     * the download to fail
+     */
+    public Future<File> download(final String url, final String filename) {
+        return download(url, url, filename);
+    }
+
+    /**
+     * Schedule a file to be downloaded.
+     *
+     * @param key      Identifies the file, both on disk and among the downloads in progress
+     * @param url      URL of the file
+     * @param filename Name to save the file under
+     * @return A {@link Future} which completes with the downloaded file
+     */
+    private Future<File> download(final String key, final String url, final String filename) {
+        Path target = directory.resolve(hash(key)).resolve(sanitize(filename));
+        return schedule(key, target, part -> transfer(url, part));
+    }
+
+    /**
+     * Schedule a FogBugz attachment to be downloaded and compressed in ZIP format.
+     *
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @param maxSize      Largest allowed size of the ZIP file, in bytes
+     * @return A {@link Future} which completes with the ZIP file, or with the {@link IOException} which caused the
+     * download to fail
+     * @see #downloadZipped(String, String, long)
+     */
+    public Future<File> downloadZipped(final FogBugz fogBugz, final FBAttachment fbAttachment, final long maxSize) {
+        return downloadZipped(key(fogBugz, fbAttachment), fbAttachment.getAbsoluteUrl(fogBugz),
+                fbAttachment.getFilename(), maxSize);
+    }
+
+    /**
+     * Schedule a file to be downloaded and compressed in ZIP format in a single pass. The ZIP file holds a single
+     * entry, named <code>filename</code>, and is itself named <code>filename</code> plus <code>.zip</code>. The
+     * saved hash (see {@link #getSha256(File)}) is that of the uncompressed file.
+     * <p>
+     * If the ZIP file grows past <code>maxSize</code>, the download is abandoned at once, and the {@link Future}
+     * completes with a {@link FileTooLargeException}. Since compression cannot carry on from where it stopped, an
+     * interrupted download starts again from the beginning.
+     * </p>
+     *
+     * @param url      URL of the file
+     * @param filename Name of the file
+     * @param maxSize  Largest allowed size of the ZIP file, in bytes
+     * @return A {@link Future} which completes with the ZIP file, or with the {@link IOException} which caused the
+     * download to fail
+     */
+    public Future<File> downloadZipped(final String url, final String filename, final long maxSize) {
+        return downloadZipped(url, url, filename, maxSize);
+    }
+
+    /**
+     * Schedule a file to be downloaded and compressed in ZIP format in a single pass.
+     *
+     * @param key      Identifies the file, both on disk and among the downloads in progress
+     * @param url      URL of the file
+     * @param filename Name of the file
+     * @param maxSize  Largest allowed size of the ZIP file, in bytes
+     * @return A {@link Future} which completes with the ZIP file
+     */
+    private Future<File> downloadZipped(final String key, final String url, final String filename,
+                                        final long maxSize) {
+        String name = sanitize(filename);
+        Path target = directory.resolve(hash(key)).resolve(name + ".zip");
+        return schedule(key + "#zip", target, part -> transferZipped(url, part, name, maxSize));
+    }
+
+    /**
+     * Schedule a download, unless it has already finished or is already in progress.
+     *
+     * @param key      Identifies the download among those in progress
+     * @param target   Where to save the file
+     * @param transfer How to make each attempt
+     * @return A {@link Future} which completes with the downloaded file
+     */
+    private Future<File> schedule(final String key, final Path target, final Transfer transfer) {
+        if (Files.isRegularFile(target)) {
+            return CompletableFuture.completedFuture(target.toFile());
+        }
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> existing = inProgress.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(() -> {
+            try {
+                future.complete(fetch(target, transfer));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                inProgress.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A single attempt at downloading a file.
+     */
+    @FunctionalInterface
+    private interface Transfer {
+        /**
+         * @param part The partial download, which may not exist yet
+         * @return SHA-256 hash of the whole file, in lowercase hexadecimal
+         * @throws IOException if an I/O error occurs
+         */
+        String to(Path part) throws IOException;
+    }
+
+    /**
+     * Download a file, retrying (and, where possible, resuming) after a failure.
+     *
+     * @param target   Where to save the file
+     * @param transfer How to make each attempt
+     * @return The downloaded file
+     * @throws IOException if every attempt fails
+     */
+    private File fetch(final Path target, final Transfer transfer) throws IOException {
+        if (Files.isRegularFile(target)) {
+            return target.toFile();
+        }
+        Files.createDirectories(target.getParent());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        String sha256;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                sha256 = transfer.to(part);
+                break;
+            } catch (FileTooLargeException e) {
+                // Trying again would not help
+                Files.deleteIfExists(part);
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.warn("Download of '{}' failed ({}), resuming", target.getFileName(), e.getMessage());
+            }
+        }
+        // The hash is saved first, so that a downloaded file always has one
+        Files.write(target.resolveSibling(target.getFileName() + HASH_SUFFIX),
+                sha256.getBytes(StandardCharsets.US_ASCII));
+        try {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        logger.info("Downloaded '{}' ({} bytes)", target, Files.size(target));
+        return target.toFile();
+    }
+
+    /**
+     * Make a single attempt at downloading the rest of a file.
+     *
+     * @param url  URL of the file
+     * @param part The partial download, which may not exist yet
+     * @return SHA-256 hash of the whole file, in lowercase hexadecimal
+     * @throws IOException if an I/O error occurs
+     */
+    private String transfer(final String url, final Path part) throws IOException {
+        long offset = Files.exists(part) ? Files.size(part) : 0;
+        URLConnection connection = connect(url, offset, part);
+        if (!(connection instanceof HttpURLConnection)
+                || ((HttpURLConnection) connection).getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+            // The server ignored the range, there was none, or the protocol (e.g. file:) cannot resume
+            offset = 0;
+        } else {
+            logger.debug("Resuming '{}' from byte {}", part.getFileName(), offset);
+        }
+
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream());
+             FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE)) {
+            out.truncate(offset);
+
+            // Hash what was downloaded before, then carry on from there
+            long position = 0;
+            while (position < offset) {
+                int read = out.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Partial download " + part.getFileName() + " shrank");
+                }
+                position += read;
+                update(digest, buffer);
+            }
+
+            out.position(offset);
+            while (in.read(buffer) >= 0) {
+                ((Buffer) buffer).flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer);
+                }
+                ((Buffer) buffer).clear();
+            }
+            long expected = connection.getContentLengthLong();
+            if (expected >= 0 && position - offset < expected) {
+                throw new IOException("Connection closed after " + (position - offset) + " of " + expected
+                        + " bytes");
+            }
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Make a single attempt at downloading a file and compressing it in ZIP format, from the beginning.
+     *
+     * @param url       URL of the file
+     * @param part      The partial ZIP file, which is replaced
+     * @param entryName Name of the entry in the ZIP file
+     * @param maxSize   Largest allowed size of the ZIP file, in bytes
+     * @return SHA-256 hash of the uncompressed file, in lowercase hexadecimal
+     * @throws FileTooLargeException if the ZIP file would be larger than <code>maxSize</code>
+     * @throws IOException           if an I/O error occurs
+     */
+    private String transferZipped(final String url, final Path part, final String entryName, final long maxSize)
+            throws IOException {
+        URLConnection connection = connect(url, 0, part);
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(connection.getInputStream(), digest);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(part), CHUNK_SIZE)) {
+            FB2GHUtils.zip(in, entryName, out, maxSize);
+        }
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Open a connection, asking for the part of the file after <code>offset</code> if it is an HTTP connection.
+     *
+     * @param url    URL of the file
+     * @param offset Number of bytes already downloaded
+     * @param part   The partial download, for messages
+     * @return The connection, whose response status (if any) is successful
+     * @throws IOException if the connection cannot be opened, or the server answers with an error status
+     */
+    private URLConnection connect(final String url, final long offset, final Path part) throws IOException {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection http = (HttpURLConnection) connection;
+            if (offset > 0) {
+                http.setRequestProperty("Range", "bytes=" + offset + "-");
+            }
+            int status = http.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL) {
+                InputStream error = http.getErrorStream();
+                if (error != null) {
+                    error.close();
+                }
+                throw new IOException("HTTP " + status + " while downloading " + part.getFileName());
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Get the SHA-256 hash of a file. For a file downloaded by this class, the hash saved during the download is
+     * returned; otherwise, the file is read.
+     *
+     * @param file The file
+     * @return SHA-256 hash of the file's contents, in lowercase hexadecimal
+     * @throws IOException if an I/O error occurs
+     */
+    public String getSha256(final File file) throws IOException {
+        Path saved = file.toPath().resolveSibling(file.getName() + HASH_SUFFIX);
+        if (Files.isRegularFile(saved)) {
+            return new String(Files.readAllBytes(saved), StandardCharsets.US_ASCII).trim();
+        }
+        return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    /**
+     * Add a buffer's contents to a digest, then clear the buffer.
+     *
+     * @param digest The digest
+     * @param buffer A buffer which has just been filled
+     */
+    private static void update(final MessageDigest digest, final ByteBuffer buffer) {
+        ((Buffer) buffer).flip();
+        digest.update(buffer);
+        ((Buffer) buffer).clear();
+    }
+
+    /**
+     * @return A new SHA-256 {@link MessageDigest}
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @return The URL of the attachment without the FogBugz token, which identifies it across runs
+     */
+    static String key(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        return fogBugz.getBaseURL() + "/" + StringEscapeUtils.unescapeHtml4(fbAttachment.getUrl());
+    }
+
+    /**
+     * @param url A URL
+     * @return A name for the directory holding the file at <code>url</code>
+     */
+    private static String hash(final String url) {
+        return Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString().substring(0, 32);
+    }
+
+    /**
+     * @param filename A filename from FogBugz
+     * @return The filename, without any directory components
+     */
+    private static String sanitize(final String filename) {
+        String name = FilenameUtils.getName(StringUtils.defaultString(filename));
+        return name.isEmpty() || name.equals(".") || name.equals("..") ? "attachment" : name;
+    }
+
+    /**
+     * Stop downloading. Downloads which have not finished are abandoned, and can be resumed by a later instance using
+     * the same directory.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -1,18 +1,25 @@
 package com.sudicode.fb2gh.migrate;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Resources;
+import com.sudicode.fb2gh.common.AbstractBuilder;
 import com.sudicode.fb2gh.common.FB2GHUtils;
+import com.sudicode.fb2gh.common.FileTooLargeException;
+import com.sudicode.fb2gh.common.PersistentStringMap;
 import com.sudicode.fb2gh.fogbugz.FBAttachment;
 import com.sudicode.fb2gh.fogbugz.FogBugz;
 import com.sudicode.fb2gh.github.GHRepo;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.openqa.selenium.By;
-import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.support.ui.FluentWait;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.Logger;
@@ -20,13 +27,33 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +64,32 @@ import java.util.regex.Pattern;
  * implementation is therefore unstable and should be handled as such. But if it
  * works for you, the more power to you.
  * </p>
+ * <p>
+ * Each uploaded file is remembered by the repository it was uploaded to and the SHA-256 hash of its contents, in a
+ * file which is kept between runs in the working directory, along with the downloaded attachments (see
+ * {@link Builder#directory(Path)}). A file with the same contents as one uploaded to the same repository before is not
+ * uploaded again; the URL of the earlier upload is used instead. Uploads are not shared between repositories, since
+ * files uploaded to a private repository cannot be seen from any other.
+ * </p>
+ * <p>
+ * Several browser sessions can be logged in at once, so that several files are uploaded in parallel. Attachments
+ * passed to {@link #prepare(FogBugz, Collection)} are downloaded and uploaded in the background, on as many threads
+ * as there are sessions. Sessions are only started when a file actually needs to be uploaded, so a migration without
+ * attachments never starts a browser. The browser can be run without a display, for use on servers.
+ * </p>
+ * <p>
+ * To instantiate, use the builder, like so:
+ * </p>
+ * <pre>
+ * GHAttachmentUploader uploader = new GHAttachmentUploader.Builder(ghUsername, ghPassword, ghRepo)
+ *     .browser(GHAttachmentUploader.Browser.CHROME)
+ *     .headless(true)
+ *     .sessions(4)
+ *     .build();
+ * </pre>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
  *
  * @see <a href=
  * "https://help.github.com/articles/file-attachments-on-issues-and-pull-requests/">File
@@ -53,10 +106,50 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     private static final String SUPPORTED_FILE_TYPES = "png|gif|jpg|txt|pdf|zip|gz";
 
+    /**
+     * File types which are already compressed, and so are never zipped.
+     */
+    private static final String ARCHIVE_FILE_TYPES = "zip|gz";
+
+    /**
+     * Files this large (in bytes) or larger are zipped.
+     */
+    private static final long ZIP_THRESHOLD = 10L * 1000000;
+
+    /**
+     * GitHub won't accept files this large (in bytes) or larger.
+     */
+    private static final long SIZE_LIMIT = 25L * 1000000;
+
+    /**
+     * Longest time, in milliseconds, that a thread waiting for a session goes without checking whether a session was
+     * discarded, so that it may start a new one.
+     */
+    private static final long CHECK_OUT_INTERVAL = 1000;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Browsers whose driver has been installed by this JVM.
+     */
+    private static final Set<Browser> installedDrivers = EnumSet.noneOf(Browser.class);
+
+    private final String ghUsername;
+    private final String ghPassword;
+    private final GHRepo ghRepo;
+    private final Browser browser;
+    private final boolean headless;
+    private final int maxSessions;
     private final int timeoutInSeconds;
-    private final WebDriver webDriver;
-    private final FluentWait<WebDriver> wait;
     private final FBAttachmentConverter fallback;
+    private final FBAttachmentDownloader downloader;
+    private final PersistentStringMap uploads;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final Supplier<Session> sessionFactory;
+    private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
 
     /**
      * Constructor.
@@ -68,7 +161,7 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     public GHAttachmentUploader(final String ghUsername, final String ghPassword, final GHRepo ghRepo,
                                 final Browser browser) {
-        this(ghUsername, ghPassword, ghRepo, browser, DEFAULT_TIMEOUT_IN_SECONDS, DEFAULT_ATTACHMENT_CONVERTER);
+        this(new Builder(ghUsername, ghPassword, ghRepo).browser(browser));
     }
 
     /**
@@ -82,7 +175,7 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     public GHAttachmentUploader(final String ghUsername, final String ghPassword, final GHRepo ghRepo,
                                 final Browser browser, final int timeoutInSeconds) {
-        this(ghUsername, ghPassword, ghRepo, browser, timeoutInSeconds, DEFAULT_ATTACHMENT_CONVERTER);
+        this(new Builder(ghUsername, ghPassword, ghRepo).browser(browser).timeoutInSeconds(timeoutInSeconds));
     }
 
     /**
@@ -96,7 +189,7 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     public GHAttachmentUploader(final String ghUsername, final String ghPassword, final GHRepo ghRepo,
                                 final Browser browser, final FBAttachmentConverter fallback) {
-        this(ghUsername, ghPassword, ghRepo, browser, DEFAULT_TIMEOUT_IN_SECONDS, fallback);
+        this(new Builder(ghUsername, ghPassword, ghRepo).browser(browser).fallback(fallback));
     }
 
     /**
@@ -111,22 +204,161 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     public GHAttachmentUploader(final String ghUsername, final String ghPassword, final GHRepo ghRepo,
                                 final Browser browser, final int timeoutInSeconds, final FBAttachmentConverter fallback) {
+        this(new Builder(ghUsername, ghPassword, ghRepo).browser(browser).timeoutInSeconds(timeoutInSeconds)
+                .fallback(fallback));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param builder The {@link Builder} to initialize with
+     */
+    private GHAttachmentUploader(final Builder builder) {
         // Initialize
-        this.timeoutInSeconds = timeoutInSeconds;
-        this.fallback = fallback;
-        webDriver = newWebDriver(browser);
-        wait = new WebDriverWait(webDriver, timeoutInSeconds);
-
-        // Log in to GitHub (required to access the issues page)
-        webDriver.get("http://github.com/login/");
-        webDriver.findElement(By.id("login_field")).sendKeys(ghUsername);
-        webDriver.findElement(By.id("password")).sendKeys(ghPassword);
-        webDriver.findElement(By.name("commit")).click();
-        wait.until(webDriver -> "https://github.com/".equals(webDriver.getCurrentUrl()));
-        webDriver.get(String.format("https://github.com/%s/%s/issues/new", ghRepo.getOwner(), ghRepo.getName()));
+        this.ghUsername = builder.ghUsername;
+        this.ghPassword = builder.ghPassword;
+        this.ghRepo = builder.ghRepo;
+        this.browser = builder.browser;
+        this.headless = builder.headless;
+        this.maxSessions = builder.sessions;
+        this.timeoutInSeconds = builder.timeoutInSeconds;
+        this.fallback = builder.fallback;
+        this.sessionFactory = builder.sessionFactory != null ? builder.sessionFactory : this::startSession;
+        int timeoutInMillis = timeoutInSeconds * 1000;
+        FBAttachmentDownloader.Builder downloaderBuilder = new FBAttachmentDownloader.Builder()
+                .connectTimeout(timeoutInMillis)
+                .readTimeout(timeoutInMillis);
+        if (builder.directory != null) {
+            downloaderBuilder.directory(builder.directory);
+        }
+        downloader = downloaderBuilder.build();
+        try {
+            uploads = new PersistentStringMap(downloader.getDirectory().resolve("uploads.tsv"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        executor = Executors.newFixedThreadPool(builder.sessions, runnable -> {
+            Thread thread = new Thread(runnable, "fb2gh-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
         logger.info("Constructed successfully");
     }
 
+    /**
+     * Builder used to instantiate {@link GHAttachmentUploader}.
+     */
+    public static final class Builder extends AbstractBuilder<GHAttachmentUploader> {
+        private final String ghUsername;
+        private final String ghPassword;
+        private final GHRepo ghRepo;
+        private Browser browser = Browser.FIREFOX;
+        private int timeoutInSeconds = DEFAULT_TIMEOUT_IN_SECONDS;
+        private FBAttachmentConverter fallback = DEFAULT_ATTACHMENT_CONVERTER;
+        private int sessions = 1;
+        private boolean headless;
+        private Supplier<Session> sessionFactory;
+        private Path directory;
+
+        /**
+         * Constructor.
+         *
+         * @param ghUsername GitHub username
+         * @param ghPassword GitHub password
+         * @param ghRepo     GitHub repository to upload to
+         */
+        public Builder(final String ghUsername, final String ghPassword, final GHRepo ghRepo) {
+            this.ghUsername = ghUsername;
+            this.ghPassword = ghPassword;
+            this.ghRepo = ghRepo;
+        }
+
+        /**
+         * @param browser The {@link Browser} to use. Default is {@link Browser#FIREFOX}.
+         * @return This object
+         */
+        public Builder browser(final Browser browser) {
+            this.browser = browser;
+            return this;
+        }
+
+        /**
+         * @param headless Whether to run the browser without a window, so that no display is needed. Default is
+         *                 <code>false</code>.
+         * @return This object
+         */
+        public Builder headless(final boolean headless) {
+            this.headless = headless;
+            return this;
+        }
+
+        /**
+         * @param timeoutInSeconds The timeout used for blocking operations (downloading, uploading, etc.). Default is
+         *                         100.
+         * @return This object
+         * @throws IllegalArgumentException if <code>timeoutInSeconds</code> is not positive
+         */
+        public Builder timeoutInSeconds(final int timeoutInSeconds) {
+            if (timeoutInSeconds <= 0) {
+                throw new IllegalArgumentException("Timeout must be positive.");
+            }
+            this.timeoutInSeconds = timeoutInSeconds;
+            return this;
+        }
+
+        /**
+         * @param fallback The {@link FBAttachmentConverter} to use if uploading to GitHub fails. By default, the
+         *                 original FogBugz URL is used.
+         * @return This object
+         */
+        public Builder fallback(final FBAttachmentConverter fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * @param sessions Maximum number of browser sessions to log in, and so the number of files which may be
+         *                 uploaded at once. Default is 1.
+         * @return This object
+         * @throws IllegalArgumentException if <code>sessions</code> is not positive
+         */
+        public Builder sessions(final int sessions) {
+            if (sessions <= 0) {
+                throw new IllegalArgumentException("Sessions must be positive.");
+            }
+            this.sessions = sessions;
+            return this;
+        }
+
+        /**
+         * @param directory Working directory, which holds the downloaded attachments and the record of uploaded files.
+         *                  Default is <code>fb2gh-attachments</code> in the system temporary directory, which may be
+         *                  cleared on reboot; keep the same directory between runs so that files are not downloaded or
+         *                  uploaded again. The directory must not be used by more than one uploader at a time, whether
+         *                  in this process or another.
+         * @return This object
+         */
+        public Builder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param sessionFactory Starts a session which is logged in to GitHub. By default, a browser is started and
+         *                       logged in with the given credentials.
+         * @return This object
+         */
+        Builder sessionFactory(final Supplier<Session> sessionFactory) {
+            this.sessionFactory = sessionFactory;
+            return this;
+        }
+
+        @Override
+        public GHAttachmentUploader build() {
+            return new GHAttachmentUploader(this);
+        }
+    }
+
     /**
      * Web browser.
      */
@@ -147,20 +379,96 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      */
     @Override
     public String convert(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        // Use the result of prepare, if there is one
+        CompletableFuture<String> future = pending.remove(FBAttachmentDownloader.key(fogBugz, fbAttachment));
+        return future != null ? future.join() : convertNow(fogBugz, fbAttachment);
+    }
+
+    /**
+     * Download and upload an attachment on the calling thread.
+     *
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @return URL of the uploaded file, or the fallback URL if it could not be uploaded
+     */
+    private String convertNow(final FogBugz fogBugz, final FBAttachment fbAttachment) {
         try {
-            // Download FogBugz attachment
-            String filename = fbAttachment.getFilename();
-            String fbURL = fbAttachment.getAbsoluteUrl(fogBugz);
-            File temp = FB2GHUtils.createTempFile(filename);
-            int timeoutInMillis = timeoutInSeconds * 1000;
-            FileUtils.copyURLToFile(new URL(fbURL), temp, timeoutInMillis, timeoutInMillis);
+            // Download FogBugz attachment (unless it was already downloaded)
+            File file = startDownload(fogBugz, fbAttachment).get(timeoutInSeconds, TimeUnit.SECONDS);
 
             // Upload to GitHub Issues
-            return upload(temp);
-        } catch (IOException | TimeoutException e) {
+            return upload(file);
+        } catch (IOException | RuntimeException | TimeoutException e) {
             logger.error("Could not convert: " + fbAttachment.getAbsoluteUrl(fogBugz), e);
             return fallback.convert(fogBugz, fbAttachment);
+        } catch (ExecutionException e) {
+            logger.error("Could not download: " + fbAttachment.getAbsoluteUrl(fogBugz), e.getCause());
+            return fallback.convert(fogBugz, fbAttachment);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback.convert(fogBugz, fbAttachment);
+        }
+    }
+
+    /**
+     * Start downloading and uploading every attachment of a case in the background, using all sessions, so that
+     * they are ready by the time each one is converted.
+     *
+     * @param fogBugz       The {@link FogBugz} instance that owns the attachments
+     * @param fbAttachments The attachments which are about to be converted
+     */
+    @Override
+    public void prepare(final FogBugz fogBugz, final Collection<FBAttachment> fbAttachments) {
+        for (FBAttachment fbAttachment : fbAttachments) {
+            startDownload(fogBugz, fbAttachment);
+        }
+        for (FBAttachment fbAttachment : fbAttachments) {
+            pending.computeIfAbsent(FBAttachmentDownloader.key(fogBugz, fbAttachment),
+                    key -> CompletableFuture.supplyAsync(() -> convertNow(fogBugz, fbAttachment), executor));
+        }
+    }
+
+    /**
+     * Start downloading an attachment. Files of a type which GitHub does not accept are zipped while they are
+     * downloaded, rather than afterwards.
+     *
+     * @param fogBugz      The {@link FogBugz} instance that owns the {@link FBAttachment}
+     * @param fbAttachment The {@link FBAttachment}
+     * @return A {@link Future} which completes with the downloaded (and possibly zipped) file
+     */
+    private Future<File> startDownload(final FogBugz fogBugz, final FBAttachment fbAttachment) {
+        if (isSupported(FilenameUtils.getExtension(fbAttachment.getFilename()))) {
+            return downloader.download(fogBugz, fbAttachment);
         }
+        return downloader.downloadZipped(fogBugz, fbAttachment, SIZE_LIMIT - 1);
+    }
+
+    /**
+     * @param extension A file extension
+     * @return <code>true</code> if GitHub accepts files with the extension
+     */
+    private static boolean isSupported(final String extension) {
+        return extension != null && extension.toLowerCase().matches(SUPPORTED_FILE_TYPES);
+    }
+
+    /**
+     * Upload a file to GitHub Issues, zipping if necessary. If a file with the same contents has been uploaded to
+     * the same repository before, its URL is returned without uploading again.
+     *
+     * @param file The file to upload
+     * @return URL of the uploaded file
+     * @throws IOException if an I/O error occurs
+     */
+    public String upload(final File file) throws IOException {
+        String key = ghRepo.getOwner() + "/" + ghRepo.getName() + " " + downloader.getSha256(file);
+        String url = uploads.get(key);
+        if (url != null) {
+            logger.info("File '{}' was already uploaded to URL '{}'", file.getAbsolutePath(), url);
+            return url;
+        }
+        url = uploadFile(file);
+        uploads.put(key, url);
+        return url;
     }
 
     /**
@@ -170,55 +478,229 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
      * @return URL of the uploaded file
      * @throws IOException if an I/O error occurs
      */
-    public String upload(File file) throws IOException {
-        String extension = FilenameUtils.getExtension(file.getName());
+    private String uploadFile(final File file) throws IOException {
+        String extension = FilenameUtils.getExtension(file.getName()).toLowerCase();
 
-        // If file is incompatible, zip it
-        long tenMB = 10L * 1000000;
-        if (file.length() == 0L || file.length() >= tenMB || !extension.toLowerCase().matches(SUPPORTED_FILE_TYPES)) {
-            file = FB2GHUtils.createTempZipFile(file);
+        // If file is incompatible, zip it (into a directory of its own, so that files with the same name don't collide)
+        if (file.length() == 0L || !isSupported(extension)
+                || (file.length() >= ZIP_THRESHOLD && !extension.matches(ARCHIVE_FILE_TYPES))) {
+            Path zipDir = Files.createTempDirectory("fb2gh-zip");
+            File zipFile = zipDir.resolve(file.getName() + ".zip").toFile();
+            try {
+                FB2GHUtils.createZipFile(file, zipFile, SIZE_LIMIT - 1);
+                return uploadAsIs(zipFile);
+            } finally {
+                Files.deleteIfExists(zipFile.toPath());
+                Files.deleteIfExists(zipDir);
+            }
         }
+        return uploadAsIs(file);
+    }
 
+    /**
+     * Upload a file to GitHub Issues as it is.
+     *
+     * @param file The file to upload
+     * @return URL of the uploaded file
+     * @throws IOException if the file is too large, or an I/O error occurs
+     */
+    String uploadAsIs(final File file) throws IOException {
         // GitHub won't accept files over 25MB
-        long twentyFiveMB = 25L * 1000000;
-        if (file.length() >= twentyFiveMB) {
-            throw new IOException("File '" + file.getAbsolutePath() + "' too large.");
+        if (file.length() >= SIZE_LIMIT) {
+            throw new FileTooLargeException(file.getAbsolutePath(), SIZE_LIMIT - 1);
         }
 
-        // Upload to GH Issues
-        webDriver.findElement(By.id("issue_body")).clear();
-        webDriver.findElement(By.cssSelector("input.manual-file-chooser.js-manual-file-chooser")).sendKeys(file.getAbsolutePath());
-        String url = wait.ignoring(StringIndexOutOfBoundsException.class).until(webDriver -> {
-            String body = webDriver.findElement(By.id("issue_body")).getAttribute("value");
+        // Upload to GH Issues, using whichever session is free
+        Session session = checkOut();
+        boolean broken = false;
+        try {
+            return session.upload(file);
+        } catch (WebDriverException e) {
+            // The page may be left in any state, or the browser may be gone, so the session is not used again
+            broken = true;
+            throw e;
+        } finally {
+            if (broken) {
+                discard(session);
+            } else {
+                checkIn(session);
+            }
+        }
+    }
 
-            // HTML
-            if (body.startsWith("<img")) {
-                Matcher matcher = Pattern.compile("src=\"(.*?)\"").matcher(body);
-                return matcher.find() ? matcher.group(1) : null;
+    /**
+     * Take a free session, starting a new one if none is free and the maximum has not been reached, or otherwise
+     * waiting for one to become free. A waiting thread also starts a new session if one is discarded meanwhile.
+     *
+     * @return The session, which must be passed to {@link #checkIn(Session)} or {@link #discard(Session)} afterwards
+     * @throws IOException if no session becomes free in time, or the thread is interrupted
+     */
+    Session checkOut() throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutInSeconds);
+        while (true) {
+            Session session = idleSessions.poll();
+            if (session != null) {
+                return session;
+            }
+            if (sessionCount.incrementAndGet() <= maxSessions) {
+                try {
+                    session = sessionFactory.get();
+                } catch (RuntimeException e) {
+                    sessionCount.decrementAndGet();
+                    throw e;
+                }
+                sessions.add(session);
+                logger.info("Started browser session {} of {}", sessions.size(), maxSessions);
+                return session;
+            }
+            sessionCount.decrementAndGet();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IOException("No browser session became free within " + timeoutInSeconds + " seconds.");
             }
+            try {
+                session = idleSessions.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(CHECK_OUT_INTERVAL)),
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a browser session", e);
+            }
+            if (session != null) {
+                return session;
+            }
+        }
+    }
 
-            // Markdown
-            body = body.substring(body.lastIndexOf('(') + 1, body.lastIndexOf(')'));
-            return body.length() > 0 ? body : null;
-        });
-        logger.info("Uploaded file '{}' to URL '{}'", file.getAbsolutePath(), url);
-        return url;
+    /**
+     * Return a session, so that it may be used again.
+     *
+     * @param session The session, which was taken with {@link #checkOut()}
+     */
+    void checkIn(final Session session) {
+        idleSessions.add(session);
+    }
+
+    /**
+     * Quit a session which can no longer be used, freeing its place for a new one.
+     *
+     * @param session The session, which was taken with {@link #checkOut()}
+     */
+    void discard(final Session session) {
+        sessions.remove(session);
+        sessionCount.decrementAndGet();
+        try {
+            session.webDriver.quit();
+        } catch (WebDriverException e) {
+            logger.warn("Could not quit browser session", e);
+        }
+        logger.info("Discarded browser session, {} of {} left", sessions.size(), maxSessions);
     }
 
     /**
-     * Quit the WebDriver.
+     * Start a browser and log in to GitHub.
+     *
+     * @return The new session
+     */
+    private Session startSession() {
+        installDriver(browser);
+        Session session = new Session(newWebDriver(browser, headless), timeoutInSeconds);
+        try {
+            session.logIn(ghUsername, ghPassword, ghRepo);
+        } catch (RuntimeException e) {
+            session.webDriver.quit();
+            throw e;
+        }
+        return session;
+    }
+
+    /**
+     * A browser session which is logged in to GitHub. Only one thread may use a session at a time.
+     */
+    static final class Session {
+        private final WebDriver webDriver;
+        private final FluentWait<WebDriver> wait;
+
+        /**
+         * Constructor.
+         *
+         * @param webDriver        The browser
+         * @param timeoutInSeconds The timeout used for blocking operations
+         */
+        Session(final WebDriver webDriver, final int timeoutInSeconds) {
+            this.webDriver = webDriver;
+            this.wait = new WebDriverWait(webDriver, timeoutInSeconds).ignoring(StringIndexOutOfBoundsException.class);
+        }
+
+        /**
+         * Log in to GitHub (required to access the issues page), then open the new issue page.
+         *
+         * @param ghUsername GitHub username
+         * @param ghPassword GitHub password
+         * @param ghRepo     GitHub repository to upload to
+         */
+        private void logIn(final String ghUsername, final String ghPassword, final GHRepo ghRepo) {
+            webDriver.get("http://github.com/login/");
+            webDriver.findElement(By.id("login_field")).sendKeys(ghUsername);
+            webDriver.findElement(By.id("password")).sendKeys(ghPassword);
+            webDriver.findElement(By.name("commit")).click();
+            wait.until(webDriver -> "https://github.com/".equals(webDriver.getCurrentUrl()));
+            webDriver.get(String.format("https://github.com/%s/%s/issues/new", ghRepo.getOwner(), ghRepo.getName()));
+        }
+
+        /**
+         * Upload a file through the new issue page.
+         *
+         * @param file The file to upload
+         * @return URL of the uploaded file
+         */
+        private String upload(final File file) {
+            webDriver.findElement(By.id("issue_body")).clear();
+            webDriver.findElement(By.cssSelector("input.manual-file-chooser.js-manual-file-chooser")).sendKeys(file.getAbsolutePath());
+            String url = wait.until(webDriver -> {
+                String body = webDriver.findElement(By.id("issue_body")).getAttribute("value");
+
+                // HTML
+                if (body.startsWith("<img")) {
+                    Matcher matcher = Pattern.compile("src=\"(.*?)\"").matcher(body);
+                    return matcher.find() ? matcher.group(1) : null;
+                }
+
+                // Markdown
+                body = body.substring(body.lastIndexOf('(') + 1, body.lastIndexOf(')'));
+                return body.length() > 0 ? body : null;
+            });
+            logger.info("Uploaded file '{}' to URL '{}'", file.getAbsolutePath(), url);
+            return url;
+        }
+    }
+
+    /**
+     * Quit every WebDriver, stop any downloads and uploads in progress, and close the record of uploaded files.
      */
     @Override
     public void close() {
-        webDriver.quit();
+        executor.shutdownNow();
+        downloader.close();
+        try {
+            uploads.close();
+        } catch (IOException e) {
+            logger.warn("Could not close record of uploaded files", e);
+        }
+        for (Session session : sessions) {
+            session.webDriver.quit();
+        }
     }
 
     /**
-     * Construct the {@link WebDriver} instance to be used.
+     * Install the driver for a browser into the temp directory, and point Selenium at it. A driver left there by an
+     * earlier run is reused if its checksum matches the bundled driver. Each driver is only installed once per JVM.
      *
      * @param browser The web browser to use.
      */
-    private static WebDriver newWebDriver(final Browser browser) {
+    private static synchronized void installDriver(final Browser browser) {
+        if (installedDrivers.contains(browser)) {
+            return;
+        }
         final String driver, os;
 
         // Determine driver
@@ -244,38 +726,70 @@ public class GHAttachmentUploader implements FBAttachmentConverter, Closeable {
             throw new UnsupportedOperationException("Unsupported OS: " + SystemUtils.OS_NAME);
         }
 
-        // Install driver file into temp directory
+        // Install driver file into temp directory, unless the same driver is already there
+        String filename = driver + "driver-" + os;
         try {
-            // Create temp file
-            File tmp = FB2GHUtils.createTempFile(driver + "driver-" + os);
-
-            // Initialize streams
-            try (
-                    InputStream src = GHAttachmentUploader.class.getResourceAsStream(driver + "driver-" + os);
-                    OutputStream dest = new FileOutputStream(tmp)
-            ) {
-                // Copy driver to temp file
-                IOUtils.copy(src, dest);
-                if (!tmp.setExecutable(true)) {
-                    logger.warn("Failed to set access permissions of file: {}", tmp);
+            URL resource = GHAttachmentUploader.class.getResource(filename);
+            if (resource == null) {
+                throw new IOException("Driver not found: " + filename);
+            }
+            ByteSource src = Resources.asByteSource(resource);
+            Path target = Paths.get(System.getProperty("java.io.tmpdir"), "fb2gh-drivers", filename);
+            HashCode expected = src.hash(Hashing.sha256());
+            ByteSource existing = com.google.common.io.Files.asByteSource(target.toFile());
+            if (Files.isRegularFile(target) && existing.hash(Hashing.sha256()).equals(expected)) {
+                logger.info("Reusing driver '{}'", target);
+            } else {
+                // Copy driver next to its final location, then move it into place, so that it is never half-written
+                Files.createDirectories(target.getParent());
+                Path tmp = Files.createTempFile(target.getParent(), filename, ".tmp");
+                try {
+                    src.copyTo(com.google.common.io.Files.asByteSink(tmp.toFile()));
+                    try {
+                        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(tmp);
                 }
-
-                // Set driver property
-                String key = "webdriver." + driver + ".driver";
-                String value = URLDecoder.decode(tmp.getAbsolutePath(), "UTF-8");
-                System.setProperty(key, value);
-                logger.info("System property '{}' was set to '{}'.", key, value);
+                logger.info("Installed driver '{}'", target);
+            }
+            if (!target.toFile().canExecute() && !target.toFile().setExecutable(true)) {
+                logger.warn("Failed to set access permissions of file: {}", target);
             }
+
+            // Set driver property
+            String key = "webdriver." + driver + ".driver";
+            String value = URLDecoder.decode(target.toAbsolutePath().toString(), "UTF-8");
+            System.setProperty(key, value);
+            logger.info("System property '{}' was set to '{}'.", key, value);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        installedDrivers.add(browser);
+    }
 
-        // Return WebDriver
+    /**
+     * Construct a {@link WebDriver} instance. The driver must already have been installed.
+     *
+     * @param browser  The web browser to use.
+     * @param headless Whether to run the browser without a window
+     */
+    private static WebDriver newWebDriver(final Browser browser, final boolean headless) {
         switch (browser) {
             case FIREFOX:
-                return new FirefoxDriver();
+                FirefoxOptions firefoxOptions = new FirefoxOptions();
+                if (headless) {
+                    firefoxOptions.addArguments("-headless");
+                }
+                return new FirefoxDriver(firefoxOptions);
             case CHROME:
-                return new ChromeDriver();
+                ChromeOptions chromeOptions = new ChromeOptions();
+                if (headless) {
+                    chromeOptions.addArguments("--headless", "--disable-gpu");
+                }
+                return new ChromeDriver(chromeOptions);
             default:
                 throw new IllegalArgumentException("Invalid browser: " + browser);
         }
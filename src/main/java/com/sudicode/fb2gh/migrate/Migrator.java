@@ -3,11 +3,14 @@ package com.sudicode.fb2gh.migrate;
 import com.sudicode.fb2gh.FB2GHException;
 import com.sudicode.fb2gh.common.AbstractBuilder;
 import com.sudicode.fb2gh.common.FB2GHUtils;
+import com.sudicode.fb2gh.common.PrefetchingIterable;
 import com.sudicode.fb2gh.fogbugz.FBAttachment;
 import com.sudicode.fb2gh.fogbugz.FBCase;
 import com.sudicode.fb2gh.fogbugz.FBCaseEvent;
 import com.sudicode.fb2gh.fogbugz.FogBugz;
 import com.sudicode.fb2gh.github.GHIssue;
+import com.sudicode.fb2gh.github.GHIssueImport;
+import com.sudicode.fb2gh.github.GHIssueSpec;
 import com.sudicode.fb2gh.github.GHLabel;
 import com.sudicode.fb2gh.github.GHMilestone;
 import com.sudicode.fb2gh.github.GHRepo;
@@ -17,16 +20,24 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -43,7 +54,12 @@ import java.util.stream.Collectors;
  */
 public class Migrator {
 
-    private static final long DEFAULT_POST_DELAY = 100;
+    private static final long DEFAULT_POST_DELAY = 0;
+
+    /**
+     * Maximum number of issue imports which may be in progress at once.
+     */
+    private static final int MAX_PENDING_IMPORTS = 50;
     private static final Logger logger = LoggerFactory.getLogger(Migrator.class);
     private static final ThreadLocal<DateFormat> utcFormat = ThreadLocal.withInitial(() -> {
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
@@ -59,10 +75,12 @@ public class Migrator {
     private final Predicate<FBCase> closeIf;
     private final Map<String, String> usernameMap;
     private final long postDelay;
+    private final int prefetch;
     private final Predicate<FBCase> migrateIf;
     private final BiConsumer<FBCase, GHIssue> afterMigrate;
     private final BiConsumer<FBCase, Exception> exceptionHandler;
     private final ThreadLocal<DateFormat> dateFormat;
+    private final boolean importIssues;
 
     /**
      * Constructor.
@@ -85,6 +103,7 @@ public class Migrator {
         usernameMap = builder.usernameMap != null ? builder.usernameMap
                 : Collections.emptyMap();
         postDelay = builder.postDelay;
+        prefetch = builder.prefetch;
         migrateIf = builder.migrateIf != null ? builder.migrateIf
                 : fbCase -> true;
         afterMigrate = builder.afterMigrate != null ? builder.afterMigrate
@@ -95,6 +114,7 @@ public class Migrator {
         };
         dateFormat = ThreadLocal.withInitial(() -> builder.dateFormat != null ? builder.dateFormat
                 : new SimpleDateFormat("M/d/yyyy h:mm a z"));
+        importIssues = builder.importIssues;
     }
 
     /**
@@ -109,10 +129,12 @@ public class Migrator {
         private Predicate<FBCase> closeIf;
         private Map<String, String> usernameMap;
         private long postDelay = DEFAULT_POST_DELAY;
+        private int prefetch;
         private Predicate<FBCase> migrateIf;
         private BiConsumer<FBCase, GHIssue> afterMigrate;
         private BiConsumer<FBCase, Exception> exceptionHandler;
         private DateFormat dateFormat;
+        private boolean importIssues;
 
         /**
          * Constructor.
@@ -170,7 +192,10 @@ public class Migrator {
         }
 
         /**
-         * @param postDelay Number of milliseconds to wait after posting an issue or comment, to avoid abuse detection.
+         * @param postDelay Number of milliseconds to wait after posting an issue or comment. Default is
+         *                  <code>0</code>, since connections made with {@link com.sudicode.fb2gh.github.GHFactory}
+         *                  already pace requests according to the GitHub rate limit (see
+         *                  {@link com.sudicode.fb2gh.github.GHRateLimiter}).
          * @return This object
          * @throws IllegalArgumentException if <code>postDelay</code> is negative
          */
@@ -182,6 +207,24 @@ public class Migrator {
             return this;
         }
 
+        /**
+         * Read cases ahead of the migration on a background thread, so that fetching the next cases from FogBugz
+         * overlaps with posting the current one to GitHub. By default, each case is only read once the previous one
+         * has been migrated.
+         *
+         * @param lookahead Maximum number of cases to read ahead, or 0 to disable prefetching
+         * @return This object
+         * @throws IllegalArgumentException if <code>lookahead</code> is negative
+         * @see PrefetchingIterable
+         */
+        public Builder prefetch(final int lookahead) {
+            if (lookahead < 0) {
+                throw new IllegalArgumentException("Lookahead cannot be negative.");
+            }
+            this.prefetch = lookahead;
+            return this;
+        }
+
         /**
          * Only migrate FogBugz cases that pass the given {@link Predicate}. By default, all cases will be migrated.
          *
@@ -238,6 +281,22 @@ public class Migrator {
             return this;
         }
 
+        /**
+         * Create each issue, along with its comments, labels, milestone, assignee and state, in a single request
+         * through {@link GHRepo#importIssue(GHIssueImport)}, rather than with one request per comment and attribute.
+         * The issue and its comments keep their original timestamps. Up to 50 imports are left to finish in the
+         * background while later cases are submitted; {@link #afterMigrate(BiConsumer)} and
+         * {@link #exceptionHandler(BiConsumer)} are still called on the migrating thread, in case order. By default,
+         * issues are not imported.
+         *
+         * @param importIssues Whether to import issues
+         * @return This object
+         */
+        public Builder importIssues(final boolean importIssues) {
+            this.importIssues = importIssues;
+            return this;
+        }
+
         @Override
         public Migrator build() {
             return new Migrator(this);
@@ -256,72 +315,229 @@ public class Migrator {
         for (GHMilestone milestone : ghRepo.getMilestones()) {
             milestones.put(milestone.getTitle(), milestone);
         }
+        Set<String> assignableUsers = new HashSet<>();
 
-        for (FBCase fbCase : cases) {
-            try {
-                // Skip if case shouldn't be migrated
-                if (!migrateIf.test(fbCase)) {
-                    continue;
-                }
+        Deque<PendingImport> pendingImports = new ArrayDeque<>();
+        Iterator<FBCase> iterator = prefetch > 0 ? new PrefetchingIterable<>(cases, prefetch).iterator()
+                : cases.iterator();
+        try {
+            while (iterator.hasNext()) {
+                FBCase fbCase = iterator.next();
+                try {
+                    // Skip if case shouldn't be migrated
+                    if (!migrateIf.test(fbCase)) {
+                        continue;
+                    }
 
-                // Labels to attach to issue
-                List<GHLabel> issueLabels = fbCaseLabeler.getLabels(fbCase);
+                    // Labels to attach to issue
+                    List<GHLabel> issueLabels = fbCaseLabeler.getLabels(fbCase);
 
-                // If labels don't exist, create them
-                for (GHLabel label : issueLabels) {
-                    if (!FB2GHUtils.containsIgnoreCase(labelNames, label.getName())) {
-                        ghRepo.addLabel(label);
-                        labelNames.add(label.getName());
+                    // If labels don't exist, create them
+                    for (GHLabel label : issueLabels) {
+                        if (!FB2GHUtils.containsIgnoreCase(labelNames, label.getName())) {
+                            ghRepo.addLabel(label);
+                            labelNames.add(label.getName());
+                        }
                     }
-                }
 
-                // If milestone doesn't exist, create it
-                String milestoneTitle = fbCase.getMilestoneName();
-                GHMilestone ghMilestone;
-                if (milestones.containsKey(milestoneTitle)) {
-                    ghMilestone = milestones.get(milestoneTitle);
-                } else {
-                    ghMilestone = ghRepo.addMilestone(milestoneTitle);
-                    milestones.put(milestoneTitle, ghMilestone);
-                }
+                    // If milestone doesn't exist, create it
+                    String milestoneTitle = fbCase.getMilestoneName();
+                    GHMilestone ghMilestone;
+                    if (milestones.containsKey(milestoneTitle)) {
+                        ghMilestone = milestones.get(milestoneTitle);
+                    } else {
+                        ghMilestone = ghRepo.addMilestone(milestoneTitle);
+                        milestones.put(milestoneTitle, ghMilestone);
+                    }
 
-                // Get title and description
-                List<FBCaseEvent> events = fbCase.getEvents();
-                String title = fbCase.getTitle();
-                String description = convertToComment(events.get(0));
-
-                // Post the issue, along with remaining events (if any)
-                GHIssue issue = ghRepo.addIssue(title, description);
-                FB2GHUtils.sleepQuietly(postDelay);
-                issue.addLabels(issueLabels);
-                issue.setMilestone(ghMilestone);
-                for (int i = 1; i < events.size(); i++) {
-                    issue.addComment(convertToComment(events.get(i)));
-                    FB2GHUtils.sleepQuietly(postDelay);
+                    // Get title and description
+                    List<FBCaseEvent> events = fbCase.getEvents();
+                    List<FBAttachment> attachments = events.stream()
+                            .flatMap(event -> event.getAttachments().stream())
+                            .collect(Collectors.toList());
+                    if (!attachments.isEmpty()) {
+                        fbAttachmentConverter.prepare(fogBugz, attachments);
+                    }
+                    String title = fbCase.getTitle();
+                    String description = convertToComment(events.get(0));
+
+                    // Only open issues are assigned. GitHub rejects the whole issue if it names a user who cannot be
+                    // assigned, so a user is only named once an issue was assigned to them separately.
+                    boolean close = closeIf.test(fbCase);
+                    String assignee = !close && usernameMap.containsKey(fbCase.getAssignee())
+                            ? usernameMap.get(fbCase.getAssignee()) : null;
+                    String deferredAssignee = assignee != null && !assignableUsers.contains(assignee) ? assignee
+                            : null;
+                    String namedAssignee = deferredAssignee == null ? assignee : null;
+
+                    // Post the issue, along with remaining events (if any)
+                    if (importIssues) {
+                        pendingImports.add(new PendingImport(fbCase, deferredAssignee, ghRepo.importIssue(
+                                toIssueImport(fbCase, description, issueLabels, ghMilestone, namedAssignee))));
+                        FB2GHUtils.sleepQuietly(postDelay);
+                    } else {
+                        GHIssueSpec.Builder spec = new GHIssueSpec.Builder(title, description)
+                                .labels(issueLabels)
+                                .milestone(ghMilestone);
+                        if (namedAssignee != null) {
+                            spec.assignee(namedAssignee);
+                        }
+                        GHIssue issue = ghRepo.addIssue(spec.build());
+                        FB2GHUtils.sleepQuietly(postDelay);
+                        if (deferredAssignee != null) {
+                            assignSeparately(issue, deferredAssignee, assignableUsers);
+                        }
+                        for (int i = 1; i < events.size(); i++) {
+                            issue.addComment(convertToComment(events.get(i)));
+                            FB2GHUtils.sleepQuietly(postDelay);
+                        }
+                        if (close) {
+                            issue.close();
+                        }
+
+                        // Post-migration action
+                        afterMigrate.accept(fbCase, issue);
+
+                        logger.info("Migrated case '{}'", title);
+                    }
+                    if (Thread.interrupted()) {
+                        logger.info("Migration interrupted.");
+                        break;
+                    }
+                } catch (FB2GHException | RuntimeException e) {
+                    exceptionHandler.accept(fbCase, e);
                 }
-                if (closeIf.test(fbCase)) {
-                    issue.close();
+                finishImports(pendingImports, MAX_PENDING_IMPORTS, assignableUsers);
+            }
+            finishImports(pendingImports, 0, assignableUsers);
+        } finally {
+            if (iterator instanceof Closeable) {
+                try {
+                    ((Closeable) iterator).close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close case iterator.", e);
                 }
+            }
+        }
+    }
 
-                // Set assignee
-                if (issue.isOpen() && usernameMap.containsKey(fbCase.getAssignee())) {
-                    issue.assignTo(usernameMap.get(fbCase.getAssignee()));
-                }
+    /**
+     * Assign an issue to a user who was left out of the request which created it, since no issue had been assigned
+     * to them yet. If the user cannot be assigned, the issue is left unassigned rather than failing the case.
+     *
+     * @param issue           The issue
+     * @param ghUsername      GitHub username
+     * @param assignableUsers Users who have been assigned an issue, to which <code>ghUsername</code> is added if the
+     *                        assignment succeeds
+     */
+    private void assignSeparately(final GHIssue issue, final String ghUsername, final Set<String> assignableUsers) {
+        try {
+            issue.assignTo(ghUsername);
+            assignableUsers.add(ghUsername);
+        } catch (FB2GHException e) {
+            logger.warn("Could not assign issue to GitHub user '{}'; leaving it unassigned", ghUsername, e);
+        }
+        FB2GHUtils.sleepQuietly(postDelay);
+    }
 
-                // Post-migration action
-                afterMigrate.accept(fbCase, issue);
+    /**
+     * Describe a case as a single issue import.
+     *
+     * @param fbCase      The case
+     * @param description The description of the issue, from the first event
+     * @param labels      Labels to add to the issue
+     * @param milestone   Milestone to add the issue to
+     * @param assignee    GitHub username to assign the issue to, or <code>null</code> for none
+     * @return The issue import
+     * @throws FB2GHException if there is an API issue.
+     */
+    private GHIssueImport toIssueImport(final FBCase fbCase, final String description, final List<GHLabel> labels,
+                                        final GHMilestone milestone, final String assignee) throws FB2GHException {
+        List<FBCaseEvent> events = fbCase.getEvents();
+        boolean closed = closeIf.test(fbCase);
+        GHIssueImport.Builder builder = new GHIssueImport.Builder(fbCase.getTitle(), description)
+                .createdAt(parseDate(events.get(0)))
+                .labels(labels)
+                .milestone(milestone)
+                .closed(closed);
+        for (int i = 1; i < events.size(); i++) {
+            builder.comment(convertToComment(events.get(i)), parseDate(events.get(i)));
+        }
+        if (closed) {
+            builder.closedAt(parseDate(events.get(events.size() - 1)));
+        }
+        if (assignee != null) {
+            builder.assignee(assignee);
+        }
+        return builder.build();
+    }
 
-                logger.info("Migrated case '{}'", title);
-                if (Thread.interrupted()) {
-                    logger.info("Migration interrupted.");
-                    break;
+    /**
+     * Wait for the oldest imports to finish until no more than <code>maxPending</code> are left, and also handle any
+     * later imports which have already finished, stopping at the first one which has not.
+     *
+     * @param pendingImports  Imports in progress, oldest first
+     * @param maxPending      Maximum number of imports to leave in progress
+     * @param assignableUsers Users who have been assigned an issue
+     */
+    private void finishImports(final Deque<PendingImport> pendingImports, final int maxPending,
+                               final Set<String> assignableUsers) {
+        while (!pendingImports.isEmpty()
+                && (pendingImports.size() > maxPending || pendingImports.peek().future.isDone())) {
+            PendingImport pendingImport = pendingImports.poll();
+            FBCase fbCase = pendingImport.fbCase;
+            try {
+                GHIssue issue = pendingImport.future.join();
+                if (pendingImport.deferredAssignee != null) {
+                    assignSeparately(issue, pendingImport.deferredAssignee, assignableUsers);
                 }
-            } catch (FB2GHException | RuntimeException e) {
+                afterMigrate.accept(fbCase, issue);
+                logger.info("Migrated case '{}'", fbCase.getTitle());
+            } catch (CompletionException e) {
+                exceptionHandler.accept(fbCase, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (RuntimeException e) {
                 exceptionHandler.accept(fbCase, e);
             }
         }
     }
 
+    /**
+     * A case whose issue is being imported.
+     */
+    private static final class PendingImport {
+        private final FBCase fbCase;
+        private final String deferredAssignee;
+        private final CompletableFuture<GHIssue> future;
+
+        /**
+         * Constructor.
+         *
+         * @param fbCase           The case
+         * @param deferredAssignee GitHub username to assign the issue to once it has been imported, or
+         *                         <code>null</code> for none
+         * @param future           Completes when the import has finished
+         */
+        private PendingImport(final FBCase fbCase, final String deferredAssignee,
+                              final CompletableFuture<GHIssue> future) {
+            this.fbCase = fbCase;
+            this.deferredAssignee = deferredAssignee;
+            this.future = future;
+        }
+    }
+
+    /**
+     * @param event A {@link FBCaseEvent}
+     * @return When the event happened
+     * @throws FB2GHException if the timestamp cannot be parsed
+     */
+    private static Date parseDate(final FBCaseEvent event) throws FB2GHException {
+        try {
+            return getUtcFormat().parse(event.getDateTime());
+        } catch (ParseException e) {
+            throw new FB2GHException(e);
+        }
+    }
+
     /**
      * Represent the given {@link FBCaseEvent} as a GitHub issue comment.
      *
@@ -332,12 +548,7 @@ public class Migrator {
     private String convertToComment(final FBCaseEvent event) throws FB2GHException {
         StringBuilder sb = new StringBuilder();
 
-        Date date;
-        try {
-            date = getUtcFormat().parse(event.getDateTime());
-        } catch (ParseException e) {
-            throw new FB2GHException(e);
-        }
+        Date date = parseDate(event);
         sb.append("<strong>").append(event.getDescription()).append("</strong> ").append(getDateFormat().format(date));
 
         if (StringUtils.chomp(event.getChanges()).length() > 0) {
@@ -62,6 +62,23 @@ public class FB2GHUtilsTest {
         assertArrayEquals(randomBytes, baos.toByteArray());
     }
 
+    @Test
+    public void testCreateZipFileTooLarge() throws Exception {
+        File tempFile = File.createTempFile("temp", null);
+        try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rwd")) {
+            raf.write(RandomUtils.nextBytes(256 * 1024));
+        }
+
+        File zipFile = File.createTempFile("temp", ".zip");
+        try {
+            FB2GHUtils.createZipFile(tempFile, zipFile, 64 * 1024);
+            fail();
+        } catch (FileTooLargeException expected) {
+            assertThat(expected.getMaxSize(), is(64L * 1024));
+        }
+        assertFalse(zipFile.exists());
+    }
+
     @Test
     public void testSleepQuietly() throws Exception {
         // Should be ignored
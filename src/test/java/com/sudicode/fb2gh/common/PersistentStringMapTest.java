@@ -0,0 +1,61 @@
+package com.sudicode.fb2gh.common;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link PersistentStringMap}.
+ */
+public class PersistentStringMapTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReload() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("dir").resolve("map.tsv");
+        try (PersistentStringMap map = new PersistentStringMap(file)) {
+            map.put("a", "1");
+            map.put("b", "2");
+            map.put("a", "3");
+            assertThat(map.get("a"), is("3"));
+            assertThat(map.size(), is(2));
+        }
+        try (PersistentStringMap map = new PersistentStringMap(file)) {
+            assertThat(map.get("a"), is("3"));
+            assertThat(map.get("b"), is("2"));
+            assertThat(map.get("c"), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void testIgnoresIncompleteLine() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("map.tsv");
+        Files.write(file, "a\t1\nb\t2".getBytes(StandardCharsets.UTF_8));
+        try (PersistentStringMap map = new PersistentStringMap(file)) {
+            assertThat(map.get("a"), is("1"));
+            assertThat(map.get("b"), is(nullValue()));
+            map.put("c", "3");
+        }
+        try (PersistentStringMap map = new PersistentStringMap(file)) {
+            assertThat(map.get("a"), is("1"));
+            assertThat(map.get("c"), is("3"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTabs() throws Exception {
+        try (PersistentStringMap map = new PersistentStringMap(folder.getRoot().toPath().resolve("map.tsv"))) {
+            map.put("a\tb", "1");
+        }
+    }
+
+}
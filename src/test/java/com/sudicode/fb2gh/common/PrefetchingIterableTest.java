@@ -0,0 +1,119 @@
+package com.sudicode.fb2gh.common;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PrefetchingIterable}.
+ */
+public class PrefetchingIterableTest {
+
+    @Test
+    public void testOrder() throws Exception {
+        List<Integer> source = new ArrayList<>();
+        IntStream.range(0, 100).forEach(source::add);
+        source.add(null);
+
+        List<Integer> result = new ArrayList<>();
+        new PrefetchingIterable<>(source, 4).forEach(result::add);
+        assertThat(result, is(equalTo(source)));
+    }
+
+    @Test
+    public void testReadsAhead() throws Exception {
+        AtomicInteger read = new AtomicInteger();
+        CountDownLatch readAhead = new CountDownLatch(3);
+        Iterable<Integer> source = () -> IntStream.range(0, 10).peek(i -> {
+            read.incrementAndGet();
+            readAhead.countDown();
+        }).iterator();
+
+        Iterator<Integer> iterator = new PrefetchingIterable<>(source, 2).iterator();
+        assertTrue(readAhead.await(5, SECONDS));
+        assertThat(iterator.next(), is(0));
+        ((Closeable) iterator).close();
+        assertThat(read.get(), is(lessThan(10)));
+    }
+
+    @Test
+    public void testClosesSource() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        abstract class CloseableIterator implements Iterator<Integer>, Closeable {
+        }
+        Iterable<Integer> source = () -> new CloseableIterator() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                return next++;
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+
+        Iterator<Integer> iterator = new PrefetchingIterable<>(source, 2).iterator();
+        assertThat(iterator.next(), is(0));
+        assertThat(closed.getCount(), is(1L));
+        ((Closeable) iterator).close();
+        assertTrue(closed.await(5, SECONDS));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Source failed");
+        Iterable<String> source = () -> new Iterator<String>() {
+            private boolean first = true;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (first) {
+                    first = false;
+                    return "first";
+                }
+                throw failure;
+            }
+        };
+
+        Iterator<String> iterator = new PrefetchingIterable<>(source, 2).iterator();
+        assertThat(iterator.next(), is("first"));
+        try {
+            iterator.next();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertThat(expected, is(sameInstance(failure)));
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLookahead() throws Exception {
+        new PrefetchingIterable<>(Arrays.asList(1, 2, 3), 0);
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.sudicode.fb2gh.FB2GHException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ArchiveFogBugz}.
+ */
+public class ArchiveFogBugzTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Path file;
+    private FogBugz source;
+
+    /**
+     * Create a case.
+     *
+     * @param id          Case number
+     * @param project     Project name
+     * @param lastUpdated Last updated time
+     * @return The case
+     */
+    private static FBCase newCase(final int id, final String project, final String lastUpdated) {
+        FBCase fbCase = new FBCase();
+        fbCase.setId(id);
+        fbCase.setTitle("Case " + id);
+        fbCase.setProjectName(project);
+        fbCase.setLastUpdated(lastUpdated);
+        return fbCase;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FBProject project = new FBProject();
+        project.setId(1);
+        project.setName("Farm");
+        FBCheckin checkin = new FBCheckin();
+        checkin.setFilename("barn.py");
+        source = mock(FogBugz.class);
+        when(source.listProjects()).thenReturn(Arrays.asList(project));
+        when(source.listCheckins(Mockito.any(FBCase.class))).thenReturn(new ArrayList<>());
+
+        file = folder.getRoot().toPath().resolve("fogbugz.fbar");
+        try (FBArchiveWriter writer = new FBArchiveWriter(file)) {
+            writer.writeMetadata(source);
+            writer.writeCase(newCase(30, "Farm", "2017-03-02T00:00:00Z"));
+            writer.writeCase(newCase(10, "Pond", "2017-01-01T00:00:00Z"));
+            writer.writeCase(newCase(20, "Farm", "2017-02-01T00:00:00Z"));
+            writer.writeCheckins(20, Arrays.asList(checkin));
+            // Written again, so the later record wins
+            writer.writeCase(newCase(10, "Farm", "2017-01-01T00:00:00Z"));
+        }
+    }
+
+    @Test
+    public void convertsAttachments() throws Exception {
+        when(source.getBaseURL()).thenReturn("http://fogbugz.example.com");
+        FBAttachment attachment = new FBAttachment();
+        attachment.setFilename("goose.png");
+        attachment.setUrl("default.asp?pg=pgDownload&amp;ixAttachment=7");
+        FBCaseEvent event = new FBCaseEvent();
+        event.setAttachments(Arrays.asList(attachment));
+        FBCase fbCase = newCase(40, "Farm", "2017-04-01T00:00:00Z");
+        fbCase.setEvents(Arrays.asList(event));
+        Path archive = folder.getRoot().toPath().resolve("attachments.fbar");
+        try (FBArchiveWriter writer = new FBArchiveWriter(archive)) {
+            writer.writeMetadata(source);
+            writer.writeCase(fbCase);
+        }
+
+        try (FBArchive fogBugz = FBFactory.openArchive(archive, "secret")) {
+            assertThat(fogBugz.getBaseURL(), is("http://fogbugz.example.com"));
+            FBAttachment archived = fogBugz.getCase(40).getEvents().get(0).getAttachments().get(0);
+            assertThat(archived.getAbsoluteUrl(fogBugz),
+                    is("http://fogbugz.example.com/default.asp?pg=pgDownload&ixAttachment=7&token=secret"));
+        }
+    }
+
+    @Test
+    public void readsArchive() throws Exception {
+        try (FBArchive fogBugz = FBFactory.openArchive(file)) {
+            assertThat(fogBugz.listProjects(), is(equalTo(source.listProjects())));
+            assertThat(fogBugz.getCase(20).getTitle(), is("Case 20"));
+
+            List<Integer> ids = new ArrayList<>();
+            fogBugz.iterateCases(15, 30).forEach(fbCase -> ids.add(fbCase.getId()));
+            assertThat(ids, contains(20, 30));
+
+            assertThat(fogBugz.searchCases("30,10,11").stream().map(FBCase::getId).collect(Collectors.toList()),
+                    contains(30, 10));
+            assertThat(fogBugz.searchCases("project:farm title:\"case 1\"").get(0).getProjectName(), is("Farm"));
+            assertThat(fogBugz.listCheckins(fogBugz.getCase(20)).get(0).getFilename(), is("barn.py"));
+            assertThat(fogBugz.listCheckins(fogBugz.getCase(30)), is(empty()));
+
+            try (Stream<FBCase> changed = fogBugz.casesChangedSince(Instant.parse("2017-02-01T00:00:00Z"))) {
+                assertThat(changed.map(FBCase::getId).collect(Collectors.toList()), contains(20, 30));
+            }
+        }
+    }
+
+    @Test
+    public void readsArchiveWithoutIndex() throws Exception {
+        byte[] archive = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(archive, archive.length - FBArchiveFormat.TRAILER_SIZE - 1));
+        try (FBArchive fogBugz = FBFactory.openArchive(file)) {
+            List<Integer> ids = new ArrayList<>();
+            fogBugz.iterateCases(1, Integer.MAX_VALUE).forEach(fbCase -> ids.add(fbCase.getId()));
+            assertThat(ids, contains(10, 20, 30));
+            assertThat(fogBugz.getCase(10).getProjectName(), is("Farm"));
+        }
+    }
+
+    @Test
+    public void closesArchive() throws Exception {
+        FBArchive fogBugz = FBFactory.openArchive(file);
+        fogBugz.close();
+        fogBugz.close();
+        assertThat(fogBugz.listProjects(), is(equalTo(source.listProjects())));
+        try {
+            fogBugz.getCase(20);
+            fail("Expected FB2GHException");
+        } catch (FB2GHException e) {
+            assertThat(e.getMessage(), containsString("closed"));
+        }
+    }
+
+    @Test(expected = FB2GHException.class)
+    public void rejectsUnsupportedQueries() throws Exception {
+        try (FBArchive fogBugz = FBFactory.openArchive(file)) {
+            fogBugz.searchCases("orderby:title");
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link CachingFBTransport}.
+ */
+public class CachingFBTransportTest {
+
+    private static final String PROJECTS = "http://fogbugz/api.asp?cmd=listProjects&token=t";
+    private static final String LOGON = "http://fogbugz/api.asp?cmd=logon&email=e&password=p";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private AtomicInteger requests;
+    private String body;
+    private FBTransport delegate;
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        requests = new AtomicInteger();
+        body = "<response><projects/></response>";
+        delegate = url -> {
+            requests.incrementAndGet();
+            return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        };
+        directory = folder.getRoot().toPath();
+    }
+
+    /**
+     * Read a response in full.
+     *
+     * @param transport The transport to use
+     * @param url       The URL to request
+     * @return The response body
+     * @throws IOException if an I/O error occurs
+     */
+    private static String read(final FBTransport transport, final String url) throws IOException {
+        try (InputStream in = transport.open(url)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        FBTransport transport = new CachingFBTransport.Builder(delegate, directory).build();
+        assertThat(read(transport, PROJECTS), is(body));
+        assertThat(read(transport, PROJECTS), is(body));
+        assertThat(requests.get(), is(1));
+
+        // Survives a restart
+        FBTransport restarted = new CachingFBTransport.Builder(delegate, directory).build();
+        assertThat(read(restarted, PROJECTS), is(body));
+        assertThat(requests.get(), is(1));
+    }
+
+    @Test
+    public void testUncachedCommands() throws Exception {
+        FBTransport transport = new CachingFBTransport.Builder(delegate, directory)
+                .maxAge("listProjects", Duration.ZERO)
+                .defaultMaxAge(Duration.ofHours(1))
+                .build();
+        read(transport, PROJECTS);
+        read(transport, PROJECTS);
+        read(transport, LOGON);
+        read(transport, LOGON);
+        assertThat(requests.get(), is(4));
+    }
+
+    @Test
+    public void testErrorsNotCached() throws Exception {
+        body = "<response><error code=\"3\">Not logged on</error></response>";
+        FBTransport transport = new CachingFBTransport.Builder(delegate, directory).build();
+        assertThat(read(transport, PROJECTS), is(body));
+        assertThat(read(transport, PROJECTS), is(body));
+        assertThat(requests.get(), is(2));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        FBTransport transport = new CachingFBTransport.Builder(delegate, directory)
+                .maxSize(body.length() * 2L)
+                .build();
+        read(transport, PROJECTS + "1");
+        read(transport, PROJECTS + "2");
+        read(transport, PROJECTS + "1");
+        read(transport, PROJECTS + "3"); // Evicts 2, the least recently used
+        assertThat(requests.get(), is(3));
+
+        read(transport, PROJECTS + "1");
+        assertThat(requests.get(), is(3));
+        read(transport, PROJECTS + "2");
+        assertThat(requests.get(), is(4));
+    }
+
+    @Test
+    public void testEvictionAcrossRestarts() throws Exception {
+        FBTransport transport = new CachingFBTransport.Builder(delegate, directory).build();
+        read(transport, PROJECTS + "1");
+        read(transport, PROJECTS + "2");
+        setTimes(PROJECTS + "1", Instant.now().minusSeconds(180));
+        setTimes(PROJECTS + "2", Instant.now().minusSeconds(120));
+        read(transport, PROJECTS + "1");
+        assertThat(requests.get(), is(2));
+
+        // 1 was downloaded first, but used last, so 2 is evicted
+        FBTransport restarted = new CachingFBTransport.Builder(delegate, directory)
+                .maxSize(body.length())
+                .build();
+        read(restarted, PROJECTS + "1");
+        assertThat(requests.get(), is(2));
+        read(restarted, PROJECTS + "2");
+        assertThat(requests.get(), is(3));
+    }
+
+    /**
+     * Backdate the cached response to a URL.
+     *
+     * @param url  The URL
+     * @param time The new last-modified and last-access time
+     * @throws IOException if an I/O error occurs
+     */
+    private void setTimes(final String url, final Instant time) throws IOException {
+        Path file = directory.resolve(Hashing.sha256().hashString(url, StandardCharsets.UTF_8) + ".xml");
+        FileTime fileTime = FileTime.from(time);
+        Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(fileTime, fileTime, null);
+    }
+
+}
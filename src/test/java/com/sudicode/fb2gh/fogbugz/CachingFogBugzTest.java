@@ -0,0 +1,84 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link CachingFogBugz}.
+ */
+public class CachingFogBugzTest {
+
+    private FogBugz delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(FogBugz.class);
+        when(delegate.listStatuses()).thenReturn(Arrays.asList(status(1, 10), status(2, 10), status(3, 20)));
+        when(delegate.listMilestones()).thenReturn(Arrays.asList(milestone(1, 5), milestone(2, 6), milestone(3, 0)));
+    }
+
+    private static FBStatus status(final int id, final int categoryId) {
+        FBStatus status = new FBStatus();
+        status.setId(id);
+        status.setCategoryId(categoryId);
+        return status;
+    }
+
+    private static FBMilestone milestone(final int id, final int projectId) {
+        FBMilestone milestone = new FBMilestone();
+        milestone.setId(id);
+        milestone.setProjectId(projectId);
+        return milestone;
+    }
+
+    @Test
+    public void filteredLookupsUseFullList() throws Exception {
+        FogBugz fogBugz = FBFactory.newCachingFogBugz(delegate, Duration.ofHours(1));
+        FBCategory category = new FBCategory();
+        category.setId(10);
+        FBProject project = new FBProject();
+        project.setId(5);
+
+        for (int i = 0; i < 3; i++) {
+            List<Integer> statusIds = fogBugz.listStatuses(category).stream()
+                    .map(FBStatus::getId).collect(Collectors.toList());
+            assertThat(statusIds, contains(1, 2));
+            assertThat(fogBugz.listStatuses(), hasSize(3));
+            List<Integer> milestoneIds = fogBugz.listMilestones(project).stream()
+                    .map(FBMilestone::getId).collect(Collectors.toList());
+            assertThat(milestoneIds, contains(1, 3));
+        }
+
+        verify(delegate, times(1)).listStatuses();
+        verify(delegate, times(1)).listMilestones();
+        verify(delegate, never()).listStatuses(any());
+        verify(delegate, never()).listMilestones(any());
+    }
+
+    @Test
+    public void expiredListsAreReloaded() throws Exception {
+        FogBugz fogBugz = FBFactory.newCachingFogBugz(delegate, Duration.ZERO);
+        fogBugz.listStatuses();
+        fogBugz.listStatuses();
+        verify(delegate, times(2)).listStatuses();
+    }
+
+    @Test
+    public void otherCallsAreForwarded() throws Exception {
+        when(delegate.getBaseURL()).thenReturn("http://fogbugz");
+        FogBugz fogBugz = FBFactory.newCachingFogBugz(delegate, Duration.ofHours(1));
+        assertThat(fogBugz.getBaseURL(), is(equalTo("http://fogbugz")));
+        fogBugz.searchCaseHeaders("project:foo");
+        verify(delegate).searchCaseHeaders("project:foo");
+    }
+
+}
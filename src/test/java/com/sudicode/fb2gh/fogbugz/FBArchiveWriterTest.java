@@ -0,0 +1,104 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link FBArchiveWriter}.
+ */
+public class FBArchiveWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Parse a test resource.
+     *
+     * @param xmlFile Name of the resource
+     * @return The parsed response
+     * @throws Exception if the resource cannot be parsed
+     */
+    private FBResponse parse(final String xmlFile) throws Exception {
+        return (FBResponse) FBJaxb.getUnmarshaller().unmarshal(getClass().getResource(xmlFile));
+    }
+
+    @Test
+    public void exportWritesIndexedRecords() throws Exception {
+        FBCase fbCase = parse("Cases.xml").getCases().get(0);
+        fbCase.setEvents(parse("Events.xml").getCases().get(0).getEvents());
+        FogBugz fogBugz = mock(FogBugz.class);
+        when(fogBugz.listProjects()).thenReturn(parse("Projects.xml").getProjects());
+        List<FBCheckin> fbCheckins = parse("Checkins.xml").getCheckins();
+        when(fogBugz.listCheckins(anyCollection())).thenReturn(Collections.singletonMap(fbCase.getId(), fbCheckins));
+
+        Path file = folder.getRoot().toPath().resolve("fogbugz.fbar");
+        try (FBArchiveWriter writer = new FBArchiveWriter(file)) {
+            writer.export(fogBugz, Collections.singletonList(fbCase), true);
+            assertThat(writer.getCaseCount(), is(1));
+        }
+
+        byte[] archive = Files.readAllBytes(file);
+        assertThat(Arrays.copyOfRange(archive, 0, 8), is(FBArchiveFormat.MAGIC));
+        assertThat(Arrays.copyOfRange(archive, archive.length - 8, archive.length), is(FBArchiveFormat.MAGIC));
+
+        DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(archive,
+                archive.length - FBArchiveFormat.TRAILER_SIZE, FBArchiveFormat.TRAILER_SIZE));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(archive));
+        in.skipBytes((int) trailer.readLong());
+        Map<Long, Integer> index = new HashMap<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            byte type = in.readByte();
+            index.put(FBArchiveFormat.indexKey(type, in.readInt()), (int) in.readLong());
+        }
+        assertThat(index.keySet(), containsInAnyOrder(
+                FBArchiveFormat.indexKey(FBArchiveFormat.METADATA, 0),
+                FBArchiveFormat.indexKey(FBArchiveFormat.CASE, 123),
+                FBArchiveFormat.indexKey(FBArchiveFormat.CHECKINS, 123)));
+
+        FBResponse metadata = readRecord(archive, index.get(FBArchiveFormat.indexKey(FBArchiveFormat.METADATA, 0)));
+        assertThat(metadata.getProjects(), is(equalTo(fogBugz.listProjects())));
+
+        FBCase archived = readRecord(archive, index.get(FBArchiveFormat.indexKey(FBArchiveFormat.CASE, 123)))
+                .getCases().get(0);
+        assertThat(archived.getTitle(), is(fbCase.getTitle()));
+        assertThat(archived.getEvents(), hasSize(1));
+        assertThat(archived.getEvents().get(0).getDescription(), is("Opened by Old MacDonald"));
+
+        FBResponse checkins = readRecord(archive, index.get(FBArchiveFormat.indexKey(FBArchiveFormat.CHECKINS, 123)));
+        assertThat(checkins.getCheckins(), is(equalTo(fbCheckins)));
+    }
+
+    /**
+     * Decode a record.
+     *
+     * @param archive The archive contents
+     * @param offset  Offset of the record
+     * @return The record contents
+     * @throws Exception if the record cannot be decoded
+     */
+    private static FBResponse readRecord(final byte[] archive, final int offset) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(archive, offset, archive.length - offset));
+        in.readByte();
+        in.readInt();
+        int length = in.readInt();
+        return (FBResponse) FBJaxb.getUnmarshaller().unmarshal(new InflaterInputStream(
+                new ByteArrayInputStream(archive, offset + FBArchiveFormat.RECORD_HEADER_SIZE, length)));
+    }
+
+}
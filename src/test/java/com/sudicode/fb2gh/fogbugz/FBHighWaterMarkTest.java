@@ -0,0 +1,60 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link FBHighWaterMark}.
+ */
+public class FBHighWaterMarkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void markOnlyMovesForward() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("fb2gh.mark");
+        FBHighWaterMark mark = new FBHighWaterMark(file);
+        assertThat(mark.get(), is(Instant.EPOCH));
+
+        FBCase fbCase = new FBCase();
+        fbCase.setLastUpdated("2017-03-01T10:00:00Z");
+        mark.record(fbCase);
+        mark.commit();
+        mark.advanceTo(Instant.parse("2017-02-01T00:00:00Z"));
+        assertThat(mark.get(), is(Instant.parse("2017-03-01T10:00:00Z")));
+
+        assertThat(new FBHighWaterMark(file).get(), is(Instant.parse("2017-03-01T10:00:00Z")));
+        assertThat(folder.getRoot().list(), arrayContaining("fb2gh.mark"));
+    }
+
+    @Test
+    public void interruptedRunStoresNothing() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("fb2gh.mark");
+        FBHighWaterMark mark = new FBHighWaterMark(file);
+        mark.advanceTo(Instant.parse("2017-01-01T00:00:00Z"));
+
+        // Cases arrive out of order, and the run stops before the earlier one is dealt with
+        FBCase later = new FBCase();
+        later.setLastUpdated("2017-03-01T10:00:00Z");
+        FBCase earlier = new FBCase();
+        earlier.setLastUpdated("2017-02-01T10:00:00Z");
+        mark.record(later);
+        assertThat(new FBHighWaterMark(file).get(), is(Instant.parse("2017-01-01T00:00:00Z")));
+
+        // The next run starts from the same mark, and stores the latest time once it has dealt with every case
+        FBHighWaterMark rerun = new FBHighWaterMark(file);
+        rerun.record(earlier);
+        rerun.record(later);
+        rerun.commit();
+        assertThat(new FBHighWaterMark(file).get(), is(Instant.parse("2017-03-01T10:00:00Z")));
+    }
+
+}
@@ -11,6 +11,17 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
@@ -75,6 +86,41 @@ public class FogBugzImplTest {
         assertThat(project.getOwner(), is("Evelyn the Project Manager"));
     }
 
+    @Test
+    public void testGzip() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("listProjects"))
+                .willReturn(theContentsOf("Projects.xml")));
+
+        assertThat(fogBugz.listProjects().get(0).getName(), is("Kakapo"));
+        server.verify(getRequestedFor(urlPathEqualTo("/api.asp")).withHeader("Accept-Encoding", containing("gzip")));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("listProjects"))
+                .willReturn(theContentsOf("Projects.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .willReturn(theContentsOf("Cases.xml")));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> fogBugz.listProjects().get(0).getName()));
+                results.add(executor.submit(() -> fogBugz.getCase(123).getArea()));
+            }
+            for (int i = 0; i < results.size(); i += 2) {
+                assertThat(results.get(i).get(), is("Kakapo"));
+                assertThat(results.get(i + 1).get(), is("Pond"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testBadToken() throws Exception {
         givenThat(aRequest()
@@ -146,6 +192,152 @@ public class FogBugzImplTest {
         assertThat(fbCase.getArea(), is("Pond"));
     }
 
+    @Test
+    public void testSearchCasesWithColumns() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .withQueryParam("cols", equalTo("fOpen,sTitle,sStatus"))
+                .willReturn(theContentsOf("Cases.xml")));
+
+        FBCase fbCase = fogBugz.searchCases("123", EnumSet.of(FBColumn.TITLE, FBColumn.STATUS, FBColumn.OPEN)).get(0);
+        assertThat(fbCase.getTitle(), is("Duck, Duck... but No Goose!"));
+        assertThat(fbCase.getLoadedColumns(), containsInAnyOrder(FBColumn.TITLE, FBColumn.STATUS, FBColumn.OPEN));
+        assertTrue(fbCase.isLoaded(FBColumn.TITLE));
+        assertFalse(fbCase.isLoaded(FBColumn.EVENTS));
+    }
+
+    @Test
+    public void testSearchCaseHeaders() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .withQueryParam("cols", notMatching(".*events.*"))
+                .willReturn(theContentsOf("Cases.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .withQueryParam("cols", equalTo("events"))
+                .willReturn(theContentsOf("Events.xml")));
+
+        FBCase fbCase = fogBugz.searchCaseHeaders("123").get(0);
+        assertThat(fbCase.getTitle(), is("Duck, Duck... but No Goose!"));
+        server.verify(0, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cols", equalTo("events")));
+
+        List<FBCaseEvent> events = fbCase.getEvents();
+        assertThat(events, hasSize(1));
+        assertThat(events.get(0).getDescription(), is("Opened by Old MacDonald"));
+        assertThat(fbCase.getEvents(), is(sameInstance(events)));
+        server.verify(1, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cols", equalTo("events")));
+    }
+
+    @Test
+    public void testCasesChangedSince() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("lastedited:\"2017-02-28..\""))
+                .withQueryParam("cols", equalTo("sTitle,dtLastUpdated"))
+                .willReturn(theContentsOf("ChangedCases.xml")));
+
+        try (Stream<FBCase> cases = fogBugz.casesChangedSince(Instant.parse("2017-03-01T10:00:00Z"),
+                EnumSet.of(FBColumn.TITLE))) {
+            List<FBCase> changed = cases.collect(Collectors.toList());
+            assertThat(changed, hasSize(1));
+            assertThat(changed.get(0).getId(), is(42));
+            assertThat(changed.get(0).getLastUpdated(), is("2017-03-01T10:00:00Z"));
+        }
+    }
+
+    @Test
+    public void testIterateCases() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .willReturn(theContentsOf("NoCases.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("121,122,123"))
+                .willReturn(theContentsOf("Cases.xml")));
+
+        List<FBCase> cases = new ArrayList<>();
+        fogBugz.iterateCases(121, 127, 3).forEach(cases::add);
+        assertThat(cases, hasSize(1));
+        assertThat(cases.get(0).getId(), is(123));
+        server.verify(3, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cmd", equalTo("search")));
+        server.verify(getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("q", equalTo("127")));
+    }
+
+    @Test
+    public void testStreamCases() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .willReturn(theContentsOf("Cases.xml")));
+
+        try (Stream<FBCase> stream = fogBugz.streamCases("123")) {
+            List<FBCase> cases = stream.collect(Collectors.toList());
+            assertThat(cases, hasSize(1));
+            assertThat(cases.get(0).getId(), is(123));
+            assertThat(cases.get(0).getTitle(), is("Duck, Duck... but No Goose!"));
+            assertThat(cases.get(0).getArea(), is("Pond"));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testStreamCasesWithLazyEventsOneRequestInFlight() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .withQueryParam("cols", notMatching(".*events.*"))
+                .willReturn(theContentsOf("Cases.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("123"))
+                .withQueryParam("cols", equalTo("events"))
+                .willReturn(theContentsOf("Events.xml")));
+        fogBugz = new FogBugzImpl("http://localhost:" + server.port(), "token",
+                new HttpFBTransport.Builder().maxRequestsInFlight(1).build());
+
+        try (Stream<FBCase> stream = fogBugz.streamCases("123", FBColumn.headers())) {
+            List<List<FBCaseEvent>> events = stream.map(FBCase::getEvents).collect(Collectors.toList());
+            assertThat(events, hasSize(1));
+            assertThat(events.get(0).get(0).getDescription(), is("Opened by Old MacDonald"));
+        }
+    }
+
+    @Test
+    public void testStreamCasesLoadsEventsPerWindow() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("41,42"))
+                .withQueryParam("cols", notMatching(".*events.*"))
+                .willReturn(theContentsOf("ChangedCases.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("cols", equalTo("events"))
+                .willReturn(theContentsOf("NoCases.xml")));
+
+        try (Stream<FBCase> stream = fogBugz.streamCases("41,42", FBColumn.headers())) {
+            stream.forEach(FBCase::getEvents);
+        }
+        server.verify(1, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cols", equalTo("events")));
+        server.verify(getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("q", equalTo("41,42"))
+                .withQueryParam("cols", equalTo("events")));
+    }
+
+    @Test
+    public void testStreamCasesError() throws Exception {
+        givenThat(aRequest()
+                .willReturn(theContentsOf("Error3.xml")));
+
+        try (Stream<FBCase> stream = fogBugz.streamCases("123")) {
+            stream.forEach(fbCase -> fail("Expected no cases"));
+            fail("Expected FB2GHException");
+        } catch (Exception expected) {
+            assertThat(expected, is(instanceOf(FB2GHException.class)));
+            assertThat(expected.getMessage(), is("Not logged on"));
+        }
+    }
+
     @Test
     public void testListCheckins() throws Exception {
         givenThat(aRequest()
@@ -160,4 +352,39 @@ public class FogBugzImplTest {
         assertThat(checkin.getFilename(), is("changedFile.py"));
     }
 
+    @Test
+    public void testListCheckinsInBulk() throws Exception {
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("listCheckins"))
+                .willReturn(theContentsOf("NoCheckins.xml")));
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("listCheckins"))
+                .withQueryParam("ixBug", equalTo("12"))
+                .willReturn(theContentsOf("Checkins.xml")));
+
+        List<FBCase> cases = new ArrayList<>();
+        for (int id = 1; id <= 120; id++) {
+            FBCase fbCase = new FBCase();
+            fbCase.setId(id);
+            cases.add(fbCase);
+        }
+        Map<Integer, List<FBCheckin>> checkins = fogBugz.listCheckins(cases);
+        assertThat(checkins.keySet(), contains(IntStream.rangeClosed(1, 120).boxed().toArray()));
+        assertThat(checkins.get(12).get(0).getCaseId(), is(12));
+        assertThat(checkins.get(13), is(empty()));
+
+        givenThat(aRequest()
+                .withQueryParam("cmd", equalTo("search"))
+                .withQueryParam("q", equalTo("10,11,12,13,14,15,16,17,18,19,20"))
+                .withQueryParam("cols", equalTo("ixBug"))
+                .willReturn(theContentsOf("CaseIds.xml")));
+        server.resetRequests();
+
+        Map<Integer, List<FBCheckin>> range = fogBugz.listCheckins(10, 20);
+        assertThat(range.keySet(), contains(12));
+        assertThat(range.get(12).get(0).getFilename(), is("changedFile.py"));
+        server.verify(1, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cmd", equalTo("search")));
+        server.verify(2, getRequestedFor(urlPathEqualTo("/api.asp")).withQueryParam("cmd", equalTo("listCheckins")));
+    }
+
 }
@@ -0,0 +1,149 @@
+package com.sudicode.fb2gh.fogbugz;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link ThrottledFBTransport}.
+ */
+public class ThrottledFBTransportTest {
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+
+    /**
+     * Read a response in full.
+     *
+     * @param transport The transport to use
+     * @param url       The URL to request
+     * @return The response body
+     * @throws IOException if an I/O error occurs
+     */
+    private static String read(final FBTransport transport, final String url) throws IOException {
+        try (InputStream in = transport.open(url)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/api.asp")).inScenario("flaky")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(503))
+                .willSetStateTo("recovered"));
+        server.givenThat(get(urlPathEqualTo("/api.asp")).inScenario("flaky")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse().withBody("<response/>")));
+
+        ThrottledFBTransport transport = new ThrottledFBTransport.Builder(new HttpFBTransport.Builder().build())
+                .permitsPerSecond(100)
+                .initialBackoff(Duration.ofMillis(10))
+                .build();
+
+        assertThat(read(transport, "http://localhost:" + server.port() + "/api.asp"), is("<response/>"));
+        assertThat(transport.getRetriedCount(), is(1L));
+        assertThat(transport.getCurrentRate(), is(closeTo(60.0, 0.001)));
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ThrottledFBTransport transport = new ThrottledFBTransport.Builder(url -> {
+            requests.incrementAndGet();
+            throw new FBHttpException(url, 404);
+        }).initialBackoff(Duration.ofMillis(1)).build();
+
+        try {
+            transport.open("http://fogbugz/api.asp");
+            fail("Expected FBHttpException");
+        } catch (FBHttpException e) {
+            assertThat(e.getStatusCode(), is(404));
+        }
+        assertThat(requests.get(), is(1));
+        assertThat(transport.getRetriedCount(), is(0L));
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        ThrottledFBTransport transport = new ThrottledFBTransport.Builder(url -> {
+            requests.incrementAndGet();
+            throw new FBHttpException(url, 500);
+        }).maxRetries(2).initialBackoff(Duration.ofMillis(1)).build();
+
+        try {
+            transport.open("http://fogbugz/api.asp");
+            fail("Expected FBHttpException");
+        } catch (FBHttpException e) {
+            assertThat(e.getStatusCode(), is(500));
+        }
+        assertThat(requests.get(), is(3));
+        assertThat(transport.getRetriedCount(), is(2L));
+    }
+
+    @Test
+    public void limitsConcurrentRequests() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch headers = new CountDownLatch(1);
+        ThrottledFBTransport transport = new ThrottledFBTransport.Builder(url -> {
+            if (url.endsWith("cmd=1")) {
+                inFlight.countDown();
+                try {
+                    headers.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return new ByteArrayInputStream(new byte[0]);
+        }).maxConcurrentRequests(1).build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<InputStream> first = executor.submit(() -> transport.open("http://fogbugz/api.asp?cmd=1"));
+            inFlight.await();
+            Future<InputStream> second = executor.submit(() -> transport.open("http://fogbugz/api.asp?cmd=2"));
+            Thread.sleep(100);
+            assertThat(second.isDone(), is(false));
+
+            headers.countDown();
+            first.get(5, TimeUnit.SECONDS).close();
+            second.get(5, TimeUnit.SECONDS).close();
+            assertThat(transport.getThrottledCount(), is(1L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void doesNotHoldPermitWhileResponseIsOpen() throws Exception {
+        ThrottledFBTransport transport = new ThrottledFBTransport.Builder(
+                url -> new ByteArrayInputStream(new byte[0])).maxConcurrentRequests(1).build();
+
+        try (InputStream first = transport.open("http://fogbugz/api.asp?cmd=1")) {
+            transport.open("http://fogbugz/api.asp?cmd=2").close();
+            assertThat(first.read(), is(-1));
+            assertThat(transport.getThrottledCount(), is(0L));
+        }
+    }
+
+}
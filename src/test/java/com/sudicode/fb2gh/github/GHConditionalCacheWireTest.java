@@ -0,0 +1,137 @@
+package com.sudicode.fb2gh.github;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.RtGithub;
+import com.jcabi.http.request.JdkRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link GHConditionalCacheWire}.
+ */
+public class GHConditionalCacheWireTest {
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+
+    /**
+     * @param maxEntries Maximum number of responses to keep
+     * @return A repository which is accessed through a {@link GHConditionalCacheWire}
+     */
+    private GHRepo newRepo(final int maxEntries) {
+        RtGithub github = new RtGithub(new JdkRequest("http://localhost:" + server.port())
+                .through(GHConditionalCacheWire.class, maxEntries));
+        return new GHRepoImpl(github.repos().get(new Coordinates.Simple("owner", "repo")));
+    }
+
+    /**
+     * Stub an issue which is served with an <code>ETag</code>, and answers <code>304</code> when it is sent back.
+     *
+     * @param number Issue number
+     */
+    private void givenIssue(final int number) {
+        String url = "/repos/owner/repo/issues/" + number;
+        server.givenThat(get(urlEqualTo(url)).willReturn(aResponse().withHeader("ETag", "\"v" + number + "\"")
+                .withBody("{\"id\":" + number + ",\"number\":" + number + ",\"title\":\"Issue " + number + "\"}")));
+        server.givenThat(get(urlEqualTo(url)).withHeader("If-None-Match", equalTo("\"v" + number + "\""))
+                .willReturn(aResponse().withStatus(304)));
+    }
+
+    @Test
+    public void servesCachedBodyWhenNotModified() throws Exception {
+        givenIssue(1);
+        GHRepo ghRepo = newRepo(10);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(ghRepo.getIssue(1).getTitle(), is("Issue 1"));
+        }
+
+        server.verify(3, getRequestedFor(urlEqualTo("/repos/owner/repo/issues/1")));
+        server.verify(2, getRequestedFor(urlEqualTo("/repos/owner/repo/issues/1"))
+                .withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        givenIssue(1);
+        givenIssue(2);
+        GHRepo ghRepo = newRepo(1);
+
+        ghRepo.getIssue(1).getTitle();
+        ghRepo.getIssue(2).getTitle();
+        assertThat(ghRepo.getIssue(1).getTitle(), is("Issue 1"));
+
+        server.verify(0, getRequestedFor(urlEqualTo("/repos/owner/repo/issues/1"))
+                .withHeader("If-None-Match", matching(".*")));
+    }
+
+    /**
+     * Stub an issue which is served to the given token with an <code>ETag</code> of its own, and answers
+     * <code>304</code> when it is sent back with the same token.
+     *
+     * @param token     An OAuth token
+     * @param remaining Value of <code>X-RateLimit-Remaining</code>, which the <code>304</code> response raises by
+     *                  1000 in a later window
+     */
+    private void givenIssueForToken(final String token, final int remaining) {
+        String url = "/repos/owner/repo/issues/1";
+        long reset = System.currentTimeMillis() / 1000 + 3600;
+        server.givenThat(get(urlEqualTo(url)).withHeader("Authorization", equalTo("token " + token))
+                .willReturn(aResponse().withHeader("ETag", "\"" + token + "\"")
+                        .withHeader("X-RateLimit-Remaining", String.valueOf(remaining))
+                        .withHeader("X-RateLimit-Reset", String.valueOf(reset))
+                        .withBody("{\"id\":1,\"number\":1,\"title\":\"Issue 1\"}")));
+        server.givenThat(get(urlEqualTo(url)).withHeader("Authorization", equalTo("token " + token))
+                .withHeader("If-None-Match", equalTo("\"" + token + "\""))
+                .willReturn(aResponse().withStatus(304)
+                        .withHeader("X-RateLimit-Remaining", String.valueOf(remaining + 1000))
+                        .withHeader("X-RateLimit-Reset", String.valueOf(reset + 3600))));
+    }
+
+    @Test
+    public void keepsResponsesPerPooledToken() throws Exception {
+        givenIssueForToken("first", 1000);
+        givenIssueForToken("second", 4000);
+        LinkedHashMap<String, GHRateLimiter> tokens = new LinkedHashMap<>();
+        tokens.put("first", new GHRateLimiter(Duration.ZERO));
+        tokens.put("second", new GHRateLimiter(Duration.ZERO));
+        RtGithub github = new RtGithub(GitHubImpl.pooled(new JdkRequest("http://localhost:" + server.port()), tokens));
+        GHRepo ghRepo = new GHRepoImpl(github.repos().get(new Coordinates.Simple("owner", "repo")));
+
+        // The first read uses the first token, and the rest use the second, which has more remaining
+        for (int i = 0; i < 3; i++) {
+            assertThat(ghRepo.getIssue(1).getTitle(), is("Issue 1"));
+        }
+
+        server.verify(0, getRequestedFor(urlEqualTo("/repos/owner/repo/issues/1"))
+                .withHeader("Authorization", equalTo("token second"))
+                .withHeader("If-None-Match", equalTo("\"first\"")));
+        server.verify(1, getRequestedFor(urlEqualTo("/repos/owner/repo/issues/1"))
+                .withHeader("Authorization", equalTo("token second"))
+                .withHeader("If-None-Match", equalTo("\"second\"")));
+        assertThat(tokens.get("second").getRemaining(), is(5000));
+    }
+
+    @Test
+    public void passesWritesThrough() throws Exception {
+        server.givenThat(post(urlEqualTo("/repos/owner/repo/issues")).willReturn(aResponse().withStatus(201)
+                .withHeader("ETag", "\"v5\"").withBody("{\"id\":5,\"number\":5,\"title\":\"Sample Bug\"}")));
+        GHRepo ghRepo = newRepo(10);
+
+        ghRepo.addIssue(new GHIssueSpec.Builder("Sample Bug", "Something is wrong.").build());
+        ghRepo.addIssue(new GHIssueSpec.Builder("Sample Bug", "Something is wrong.").build());
+
+        server.verify(0, postRequestedFor(urlEqualTo("/repos/owner/repo/issues"))
+                .withHeader("If-None-Match", matching(".*")));
+    }
+
+}
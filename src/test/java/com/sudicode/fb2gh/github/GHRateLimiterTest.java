@@ -0,0 +1,115 @@
+package com.sudicode.fb2gh.github;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.RtGithub;
+import com.jcabi.http.request.JdkRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link GHRateLimiter}.
+ */
+public class GHRateLimiterTest {
+
+    private static final long NOW = 1_500_000_000_000L;
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+
+    /**
+     * @param remaining Value of <code>X-RateLimit-Remaining</code>
+     * @param reset     Value of <code>X-RateLimit-Reset</code>, in milliseconds since the epoch
+     * @return Response headers
+     */
+    private static Map<String, List<String>> headers(final int remaining, final long reset) {
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("x-ratelimit-limit", Collections.singletonList("5000"));
+        headers.put("x-ratelimit-remaining", Collections.singletonList(String.valueOf(remaining)));
+        headers.put("x-ratelimit-reset", Collections.singletonList(String.valueOf(reset / 1000)));
+        return headers;
+    }
+
+    @Test
+    public void sendsReadsFreelyAndSpacesWrites() {
+        GHRateLimiter rateLimiter = new GHRateLimiter(Duration.ofSeconds(1));
+        assertThat(rateLimiter.update(200, headers(4000, NOW + 60_000), NOW), is(false));
+
+        assertThat(rateLimiter.reserve("GET", NOW), is(0L));
+        assertThat(rateLimiter.reserve("GET", NOW), is(0L));
+        assertThat(rateLimiter.reserve("POST", NOW), is(0L));
+        assertThat(rateLimiter.reserve("PATCH", NOW), is(1000L));
+        assertThat(rateLimiter.reserve("POST", NOW + 500), is(1500L));
+        assertThat(rateLimiter.getLimit(), is(5000));
+    }
+
+    @Test
+    public void spreadsLowBudgetUntilReset() {
+        GHRateLimiter rateLimiter = new GHRateLimiter(Duration.ZERO);
+        rateLimiter.update(200, headers(10, NOW + 10_000), NOW);
+
+        assertThat(rateLimiter.reserve("GET", NOW), is(0L));
+        assertThat(rateLimiter.reserve("GET", NOW), is(1000L));
+
+        rateLimiter.update(200, headers(0, NOW + 10_000), NOW);
+        assertThat(rateLimiter.reserve("GET", NOW), is(10_000L));
+    }
+
+    @Test
+    public void doesNotCountNotModified() {
+        GHRateLimiter rateLimiter = new GHRateLimiter(Duration.ZERO);
+        rateLimiter.update(200, headers(50, System.currentTimeMillis() + 60_000), NOW);
+        rateLimiter.reserve("GET", NOW);
+        assertThat(rateLimiter.getRemaining(), is(49));
+
+        rateLimiter.update(304, headers(50, System.currentTimeMillis() + 60_000), NOW);
+        assertThat(rateLimiter.getRemaining(), is(50));
+    }
+
+    @Test
+    public void waitsForRetryAfter() {
+        GHRateLimiter rateLimiter = new GHRateLimiter(Duration.ZERO);
+        Map<String, List<String>> headers = headers(4000, NOW + 60_000);
+        headers.put("Retry-After", Collections.singletonList("30"));
+
+        assertThat(rateLimiter.update(403, headers, NOW), is(true));
+        assertThat(rateLimiter.reserve("GET", NOW), is(30_000L));
+        assertThat(rateLimiter.update(404, headers(3999, NOW + 60_000), NOW), is(false));
+    }
+
+    @Test
+    public void retriesRateLimitedRequests() throws Exception {
+        server.givenThat(get(urlEqualTo("/repos/owner/repo/issues/1")).inScenario("limit")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(403).withHeader("Retry-After", "0")
+                        .withBody("{\"message\":\"You have triggered an abuse detection mechanism.\"}"))
+                .willSetStateTo("allowed"));
+        server.givenThat(get(urlEqualTo("/repos/owner/repo/issues/1")).inScenario("limit")
+                .whenScenarioStateIs("allowed")
+                .willReturn(aResponse().withHeader("X-RateLimit-Remaining", "4999")
+                        .withHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 3600))
+                        .withBody("{\"id\":10,\"number\":1,\"title\":\"Sample Bug\"}")));
+
+        GHRateLimiter rateLimiter = new GHRateLimiter();
+        RtGithub github = new RtGithub(new JdkRequest("http://localhost:" + server.port())
+                .through(GHRateLimitWire.class, rateLimiter));
+        GHRepo ghRepo = new GHRepoImpl(github.repos().get(new Coordinates.Simple("owner", "repo")));
+
+        assertThat(ghRepo.getIssue(1).getTitle(), is("Sample Bug"));
+        assertThat(rateLimiter.getRemaining(), is(4999));
+        assertThat(rateLimiter.getReset(), is(notNullValue()));
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.sudicode.fb2gh.github;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.RtGithub;
+import com.jcabi.http.request.JdkRequest;
+import com.sudicode.fb2gh.FB2GHException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link GHRepoImpl}.
+ */
+public class GHRepoImplTest {
+
+    private static final String IMPORTS = "/repos/owner/repo/import/issues";
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+    private GHRepo ghRepo;
+
+    @Before
+    public void setUp() {
+        RtGithub github = new RtGithub(new JdkRequest("http://localhost:" + server.port()));
+        ghRepo = new GHRepoImpl(github.repos().get(new Coordinates.Simple("owner", "repo")), Duration.ofMillis(10));
+        server.givenThat(post(urlEqualTo(IMPORTS)).willReturn(aResponse().withStatus(202)
+                .withBody("{\"id\":3,\"status\":\"pending\"}")));
+    }
+
+    @Test
+    public void testAddIssueWithSpec() throws Exception {
+        server.givenThat(post(urlEqualTo("/repos/owner/repo/issues")).willReturn(aResponse().withStatus(201)
+                .withBody("{\"id\":50,\"number\":5,\"title\":\"Sample Bug\"}")));
+        server.givenThat(get(urlEqualTo("/repos/owner/repo/issues/5"))
+                .willReturn(aResponse().withBody("{\"id\":50,\"number\":5,\"title\":\"Sample Bug\"}")));
+
+        GHIssue issue = ghRepo.addIssue(new GHIssueSpec.Builder("Sample Bug", "Something is wrong.")
+                .labels(Collections.singletonList(new GHLabel("bug")))
+                .milestone(new GHMilestone(2, "Undecided"))
+                .assignee("octocat")
+                .build());
+        assertThat(issue.getTitle(), is("Sample Bug"));
+
+        server.verify(1, postRequestedFor(urlEqualTo("/repos/owner/repo/issues"))
+                .withRequestBody(equalToJson("{\"title\":\"Sample Bug\",\"body\":\"Something is wrong.\","
+                        + "\"labels\":[\"bug\"],\"milestone\":2,\"assignees\":[\"octocat\"]}")));
+        server.verify(0, patchRequestedFor(urlMatching(".*")));
+    }
+
+    @Test
+    public void testImportIssue() throws Exception {
+        server.givenThat(get(urlEqualTo(IMPORTS + "/3")).inScenario("import")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withBody("{\"id\":3,\"status\":\"pending\"}"))
+                .willSetStateTo("imported"));
+        server.givenThat(get(urlEqualTo(IMPORTS + "/3")).inScenario("import")
+                .whenScenarioStateIs("imported")
+                .willReturn(aResponse().withBody("{\"id\":3,\"status\":\"imported\","
+                        + "\"issue_url\":\"https://api.github.com/repos/owner/repo/issues/7\"}")));
+        server.givenThat(get(urlEqualTo("/repos/owner/repo/issues/7"))
+                .willReturn(aResponse().withBody("{\"id\":70,\"number\":7,\"title\":\"Sample Bug\"}")));
+
+        GHIssueImport issueImport = new GHIssueImport.Builder("Sample Bug", "Something is wrong.")
+                .createdAt(new Date(0))
+                .labels(Collections.singletonList(new GHLabel("bug")))
+                .milestone(new GHMilestone(2, "Undecided"))
+                .comment("Resolved.", new Date(1000))
+                .closed(true)
+                .build();
+        GHIssue issue = ghRepo.importIssue(issueImport).get(5, TimeUnit.SECONDS);
+        assertThat(issue.getTitle(), is("Sample Bug"));
+
+        server.verify(postRequestedFor(urlEqualTo(IMPORTS))
+                .withHeader("Accept", equalTo("application/vnd.github.golden-comet-preview+json"))
+                .withRequestBody(equalToJson("{\"issue\":{\"title\":\"Sample Bug\",\"body\":\"Something is wrong.\","
+                        + "\"closed\":true,\"created_at\":\"1970-01-01T00:00:00Z\",\"milestone\":2,"
+                        + "\"labels\":[\"bug\"]},"
+                        + "\"comments\":[{\"body\":\"Resolved.\",\"created_at\":\"1970-01-01T00:00:01Z\"}]}")));
+        server.verify(2, getRequestedFor(urlEqualTo(IMPORTS + "/3")));
+    }
+
+    @Test
+    public void testImportIssueFailed() throws Exception {
+        server.givenThat(get(urlEqualTo(IMPORTS + "/3")).willReturn(aResponse().withBody(
+                "{\"id\":3,\"status\":\"failed\",\"errors\":[{\"field\":\"assignee\",\"code\":\"invalid\"}]}")));
+
+        try {
+            ghRepo.importIssue(new GHIssueImport.Builder("Title", "Body").assignee("nobody").build())
+                    .get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(FB2GHException.class)));
+            assertThat(e.getCause().getMessage(), containsString("assignee"));
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.sudicode.fb2gh.github;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.RtGithub;
+import com.jcabi.http.request.JdkRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for {@link GHTokenPoolWire}.
+ */
+public class GHTokenPoolWireTest {
+
+    private static final String ISSUE = "/repos/owner/repo/issues/1";
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+    private LinkedHashMap<String, GHRateLimiter> tokens;
+    private GHRepo ghRepo;
+
+    @Before
+    public void setUp() {
+        tokens = new LinkedHashMap<>();
+        tokens.put("first", new GHRateLimiter(Duration.ZERO));
+        tokens.put("second", new GHRateLimiter(Duration.ZERO));
+        RtGithub github = new RtGithub(new JdkRequest("http://localhost:" + server.port())
+                .header("Authorization", "token ignored")
+                .through(GHTokenPoolWire.class, tokens));
+        ghRepo = new GHRepoImpl(github.repos().get(new Coordinates.Simple("owner", "repo")));
+    }
+
+    /**
+     * Stub reads of the issue with the given token.
+     *
+     * @param token     An OAuth token
+     * @param status    HTTP status code of the response
+     * @param remaining Value of <code>X-RateLimit-Remaining</code>
+     */
+    private void givenIssue(final String token, final int status, final int remaining) {
+        server.givenThat(get(urlEqualTo(ISSUE)).withHeader("Authorization", equalTo("token " + token))
+                .willReturn(aResponse().withStatus(status)
+                        .withHeader("X-RateLimit-Remaining", String.valueOf(remaining))
+                        .withHeader("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 3600))
+                        .withBody("{\"id\":10,\"number\":1,\"title\":\"Sample Bug\"}")));
+    }
+
+    @Test
+    public void readsWithTokenWithMostRemaining() throws Exception {
+        givenIssue("first", 200, 1000);
+        givenIssue("second", 200, 4000);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(ghRepo.getIssue(1).getTitle(), is("Sample Bug"));
+        }
+
+        server.verify(1, getRequestedFor(urlEqualTo(ISSUE)).withHeader("Authorization", equalTo("token first")));
+        server.verify(2, getRequestedFor(urlEqualTo(ISSUE)).withHeader("Authorization", equalTo("token second")));
+        assertThat(tokens.get("second").getRemaining(), is(3999));
+    }
+
+    @Test
+    public void skipsExhaustedToken() throws Exception {
+        givenIssue("first", 403, 0);
+        givenIssue("second", 200, 4000);
+
+        assertThat(ghRepo.getIssue(1).getTitle(), is("Sample Bug"));
+
+        server.verify(1, getRequestedFor(urlEqualTo(ISSUE)).withHeader("Authorization", equalTo("token first")));
+        server.verify(1, getRequestedFor(urlEqualTo(ISSUE)).withHeader("Authorization", equalTo("token second")));
+        assertThat(tokens.get("first").getRemaining(), is(0));
+    }
+
+    @Test
+    public void createsContentWithFirstToken() throws Exception {
+        givenIssue("first", 200, 1000);
+        givenIssue("second", 200, 4000);
+        ghRepo.getIssue(1).getTitle();
+        server.givenThat(post(urlEqualTo("/repos/owner/repo/issues")).willReturn(aResponse().withStatus(201)
+                .withBody("{\"id\":10,\"number\":1,\"title\":\"Sample Bug\"}")));
+
+        ghRepo.addIssue(new GHIssueSpec.Builder("Sample Bug", "Something is wrong.").build());
+
+        server.verify(1, postRequestedFor(urlEqualTo("/repos/owner/repo/issues"))
+                .withHeader("Authorization", equalTo("token first")));
+    }
+
+}
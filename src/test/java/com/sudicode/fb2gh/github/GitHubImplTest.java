@@ -0,0 +1,72 @@
+package com.sudicode.fb2gh.github;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.jcabi.github.Coordinates;
+import com.jcabi.github.RtGithub;
+import com.jcabi.http.Request;
+import com.jcabi.http.request.JdkRequest;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the connections built by {@link GitHubImpl}.
+ */
+public class GitHubImplTest {
+
+    private static final String ISSUE = "/repos/owner/repo/issues/1";
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+
+    /**
+     * Stub an issue which fails once with <code>502 Bad Gateway</code>, then succeeds.
+     */
+    private void givenFlakyIssue() {
+        server.givenThat(get(urlEqualTo(ISSUE)).inScenario("flaky")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(502))
+                .willSetStateTo("recovered"));
+        server.givenThat(get(urlEqualTo(ISSUE)).inScenario("flaky")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse().withBody("{\"id\":10,\"number\":1,\"title\":\"Sample Bug\"}")));
+    }
+
+    /**
+     * @param entry The entry point of a connection
+     * @return The repository, accessed through <code>entry</code>
+     */
+    private static GHRepo repo(final Request entry) {
+        return new GHRepoImpl(new RtGithub(entry).repos().get(new Coordinates.Simple("owner", "repo")));
+    }
+
+    @Test
+    public void pacedConnectionRetriesServerErrors() throws Exception {
+        givenFlakyIssue();
+        GHRepo ghRepo = repo(GitHubImpl.paced(new JdkRequest("http://localhost:" + server.port()),
+                new GHRateLimiter(Duration.ZERO)));
+
+        assertThat(ghRepo.getIssue(1).getTitle(), is("Sample Bug"));
+        server.verify(2, getRequestedFor(urlEqualTo(ISSUE)));
+    }
+
+    @Test
+    public void pooledConnectionRetriesServerErrors() throws Exception {
+        givenFlakyIssue();
+        LinkedHashMap<String, GHRateLimiter> tokens = new LinkedHashMap<>();
+        tokens.put("first", new GHRateLimiter(Duration.ZERO));
+        GHRepo ghRepo = repo(GitHubImpl.pooled(new JdkRequest("http://localhost:" + server.port()), tokens));
+
+        assertThat(ghRepo.getIssue(1).getTitle(), is("Sample Bug"));
+        server.verify(2, getRequestedFor(urlEqualTo(ISSUE)));
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.sudicode.fb2gh.migrate;
+
+import com.sudicode.fb2gh.fogbugz.FBAttachment;
+import com.sudicode.fb2gh.fogbugz.FogBugz;
+import com.sudicode.fb2gh.github.GHRepo;
+import org.joor.Reflect;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CachingAttachmentConverter}.
+ */
+public class CachingAttachmentConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private FogBugz fogBugz;
+    private GHRepo ghRepo;
+    private Path file;
+
+    @Before
+    public void setUp() {
+        fogBugz = mock(FogBugz.class);
+        when(fogBugz.getBaseURL()).thenReturn("http://fogbugz.example.com");
+        when(fogBugz.getAuthToken()).thenReturn("secret");
+        ghRepo = repo("owner", "repo");
+        file = folder.getRoot().toPath().resolve("attachments.tsv");
+    }
+
+    /**
+     * @param owner Owner of the repository
+     * @param name  Name of the repository
+     * @return A mock {@link GHRepo}
+     */
+    private static GHRepo repo(final String owner, final String name) {
+        GHRepo repo = mock(GHRepo.class);
+        when(repo.getOwner()).thenReturn(owner);
+        when(repo.getName()).thenReturn(name);
+        return repo;
+    }
+
+    /**
+     * @param id Attachment number
+     * @return A new {@link FBAttachment}
+     */
+    private static FBAttachment attachment(final int id) {
+        return Reflect.on(FBAttachment.class).create()
+                .set("filename", "file" + id + ".png")
+                .set("url", "default.asp?pg=pgDownload&amp;ixAttachment=" + id)
+                .get();
+    }
+
+    @Test
+    public void remembersUrlsAcrossRuns() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        FBAttachmentConverter uploader = (fb, attachment) ->
+                "https://example.com/" + conversions.incrementAndGet() + "/" + attachment.getFilename();
+
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, ghRepo, file)) {
+            assertThat(converter.convert(fogBugz, attachment(1)), is("https://example.com/1/file1.png"));
+            assertThat(converter.convert(fogBugz, attachment(1)), is("https://example.com/1/file1.png"));
+        }
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, ghRepo, file)) {
+            assertThat(converter.convert(fogBugz, attachment(1)), is("https://example.com/1/file1.png"));
+            assertThat(converter.convert(fogBugz, attachment(2)), is("https://example.com/2/file2.png"));
+            assertThat(converter.size(), is(2));
+        }
+        assertThat(conversions.get(), is(2));
+    }
+
+    @Test
+    public void keepsUrlsPerRepository() throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        FBAttachmentConverter uploader = (fb, attachment) ->
+                "https://example.com/" + conversions.incrementAndGet() + "/" + attachment.getFilename();
+
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, ghRepo, file)) {
+            assertThat(converter.convert(fogBugz, attachment(1)), is("https://example.com/1/file1.png"));
+        }
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, repo("owner", "other"),
+                file)) {
+            assertThat(converter.convert(fogBugz, attachment(1)), is("https://example.com/2/file1.png"));
+        }
+        assertThat(conversions.get(), is(2));
+    }
+
+    @Test
+    public void forgetsFallbackUrls() throws Exception {
+        FBAttachmentConverter fallback = (fb, attachment) -> attachment.getAbsoluteUrl(fb);
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(fallback, ghRepo, file)) {
+            assertThat(converter.convert(fogBugz, attachment(1)), endsWith("&token=secret"));
+            assertThat(converter.size(), is(0));
+        }
+    }
+
+    @Test
+    public void preparesOnlyUnseenAttachments() throws Exception {
+        List<FBAttachment> prepared = new ArrayList<>();
+        FBAttachmentConverter uploader = new FBAttachmentConverter() {
+            @Override
+            public String convert(final FogBugz fb, final FBAttachment attachment) {
+                return "https://example.com/" + attachment.getFilename();
+            }
+
+            @Override
+            public void prepare(final FogBugz fb, final Collection<FBAttachment> attachments) {
+                prepared.addAll(attachments);
+            }
+        };
+        try (CachingAttachmentConverter converter = new CachingAttachmentConverter(uploader, ghRepo, file)) {
+            converter.convert(fogBugz, attachment(1));
+            FBAttachment second = attachment(2);
+            converter.prepare(fogBugz, Arrays.asList(attachment(1), second));
+            assertThat(prepared, contains(second));
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.sudicode.fb2gh.migrate;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.google.common.hash.Hashing;
+import com.sudicode.fb2gh.common.FileTooLargeException;
+import com.sudicode.fb2gh.fogbugz.FBAttachment;
+import com.sudicode.fb2gh.fogbugz.FogBugz;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.RandomUtils;
+import org.joor.Reflect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link FBAttachmentDownloader}.
+ */
+public class FBAttachmentDownloaderTest {
+
+    @Rule
+    public WireMockRule server = new WireMockRule(options().dynamicPort());
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private FBAttachmentDownloader downloader;
+    private String url;
+
+    @Before
+    public void setUp() {
+        downloader = new FBAttachmentDownloader.Builder()
+                .directory(folder.getRoot().toPath())
+                .maxAttempts(1)
+                .build();
+        url = "http://localhost:" + server.port() + "/default.asp?pg=pgDownload&ixAttachment=1";
+    }
+
+    @After
+    public void tearDown() {
+        downloader.close();
+    }
+
+    /**
+     * @param file A file
+     * @return The contents of the file
+     * @throws Exception if the file cannot be read
+     */
+    private static String read(final File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void downloadsOnce() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/default.asp")).willReturn(aResponse().withBody("Hello, world!")));
+
+        File file = downloader.download(url, "../hello.txt").get(5, TimeUnit.SECONDS);
+        assertThat(file.getName(), is("hello.txt"));
+        assertThat(file.toPath().startsWith(folder.getRoot().toPath()), is(true));
+        assertThat(read(file), is("Hello, world!"));
+
+        assertThat(downloader.download(url, "../hello.txt").get(5, TimeUnit.SECONDS), is(file));
+        server.verify(1, getRequestedFor(urlPathEqualTo("/default.asp")));
+    }
+
+    @Test
+    public void resumesPartialDownload() throws Exception {
+        Path dir = folder.getRoot().toPath()
+                .resolve(Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString().substring(0, 32));
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("hello.txt.part"), "Hello".getBytes(StandardCharsets.UTF_8));
+        server.givenThat(get(urlPathEqualTo("/default.asp")).withHeader("Range", equalTo("bytes=5-"))
+                .willReturn(aResponse().withStatus(206).withBody(", world!")));
+
+        File file = downloader.download(url, "hello.txt").get(5, TimeUnit.SECONDS);
+        assertThat(read(file), is("Hello, world!"));
+        assertThat(Files.exists(dir.resolve("hello.txt.part")), is(false));
+        assertThat(downloader.getSha256(file), is(sha256("Hello, world!")));
+        assertThat(read(dir.resolve("hello.txt.sha256").toFile()), is(sha256("Hello, world!")));
+    }
+
+    @Test
+    public void keepsDownloadsWhenTokenChanges() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/default.asp")).willReturn(aResponse().withBody("Hello, world!")));
+        FBAttachment attachment = Reflect.on(FBAttachment.class).create()
+                .set("filename", "hello.txt")
+                .set("url", "default.asp?pg=pgDownload&amp;ixAttachment=1")
+                .get();
+        FogBugz fogBugz = mock(FogBugz.class);
+        when(fogBugz.getBaseURL()).thenReturn("http://localhost:" + server.port());
+        when(fogBugz.getAuthToken()).thenReturn("first", "second");
+
+        File file = downloader.download(fogBugz, attachment).get(5, TimeUnit.SECONDS);
+        assertThat(read(file), is("Hello, world!"));
+        server.verify(getRequestedFor(urlPathEqualTo("/default.asp")).withQueryParam("token", equalTo("first")));
+
+        assertThat(downloader.download(fogBugz, attachment).get(5, TimeUnit.SECONDS), is(file));
+        server.verify(1, getRequestedFor(urlPathEqualTo("/default.asp")));
+    }
+
+    @Test
+    public void hashesOtherFiles() throws Exception {
+        File file = folder.newFile("other.txt");
+        Files.write(file.toPath(), "Hello, world!".getBytes(StandardCharsets.UTF_8));
+        assertThat(downloader.getSha256(file), is(sha256("Hello, world!")));
+    }
+
+    /**
+     * @param contents Some text
+     * @return SHA-256 hash of the text
+     */
+    private static String sha256(final String contents) {
+        return Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+    }
+
+    @Test
+    public void zipsWhileDownloading() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/default.asp")).willReturn(aResponse().withBody("Hello, world!")));
+
+        File file = downloader.downloadZipped(url, "hello.log", 1024).get(5, TimeUnit.SECONDS);
+        assertThat(file.getName(), is("hello.log.zip"));
+        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(file))) {
+            assertThat(zip.getNextEntry().getName(), is("hello.log"));
+            assertThat(new String(IOUtils.toByteArray(zip), StandardCharsets.UTF_8), is("Hello, world!"));
+        }
+        assertThat(downloader.getSha256(file), is(sha256("Hello, world!")));
+    }
+
+    @Test
+    public void rejectsLargeZip() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/default.asp"))
+                .willReturn(aResponse().withBody(RandomUtils.nextBytes(256 * 1024))));
+        try {
+            downloader.downloadZipped(url, "random.bin", 64 * 1024).get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(FileTooLargeException.class)));
+        }
+    }
+
+    @Test
+    public void reportsFailure() throws Exception {
+        server.givenThat(get(urlPathEqualTo("/default.asp")).willReturn(aResponse().withStatus(404)));
+        try {
+            downloader.download(url, "hello.txt").get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), containsString("HTTP 404"));
+        }
+    }
+
+}
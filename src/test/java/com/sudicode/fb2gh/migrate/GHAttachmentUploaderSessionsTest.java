@@ -0,0 +1,129 @@
+package com.sudicode.fb2gh.migrate;
+
+import com.sudicode.fb2gh.github.GHRepo;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the browser sessions of {@link GHAttachmentUploader}, using stub sessions instead of a browser.
+ */
+public class GHAttachmentUploaderSessionsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final List<WebDriver> drivers = new CopyOnWriteArrayList<>();
+    private GHAttachmentUploader uploader;
+
+    @After
+    public void tearDown() {
+        if (uploader != null) {
+            uploader.close();
+        }
+    }
+
+    /**
+     * @param sessions         Maximum number of sessions
+     * @param timeoutInSeconds Timeout used for blocking operations
+     * @return A new {@link GHAttachmentUploader}, whose sessions are backed by mock {@link WebDriver}s which cannot
+     * find any element
+     */
+    private GHAttachmentUploader uploader(final int sessions, final int timeoutInSeconds) {
+        uploader = new GHAttachmentUploader.Builder("octocat", "password", mock(GHRepo.class))
+                .sessions(sessions)
+                .timeoutInSeconds(timeoutInSeconds)
+                .directory(folder.getRoot().toPath())
+                .sessionFactory(() -> {
+                    WebDriver driver = mock(WebDriver.class);
+                    when(driver.findElement(any(By.class))).thenThrow(new NoSuchElementException("issue_body"));
+                    drivers.add(driver);
+                    return new GHAttachmentUploader.Session(driver, timeoutInSeconds);
+                })
+                .build();
+        return uploader;
+    }
+
+    @Test(timeout = 10000)
+    public void limitsSessions() throws Exception {
+        uploader(2, 1);
+        assertThat(Files.exists(folder.getRoot().toPath().resolve("uploads.tsv")), is(true));
+        GHAttachmentUploader.Session first = uploader.checkOut();
+        GHAttachmentUploader.Session second = uploader.checkOut();
+        assertThat(second, is(not(first)));
+        assertThat(drivers.size(), is(2));
+
+        try {
+            uploader.checkOut();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("No browser session became free"));
+        }
+
+        uploader.checkIn(first);
+        assertThat(uploader.checkOut(), is(first));
+        assertThat(drivers.size(), is(2));
+    }
+
+    @Test(timeout = 10000)
+    public void discardsSessionAfterBrowserFailure() throws Exception {
+        uploader(1, 1);
+        File file = folder.newFile("blank.png");
+
+        try {
+            uploader.uploadAsIs(file);
+            fail("Expected WebDriverException");
+        } catch (WebDriverException e) {
+            assertThat(e, is(instanceOf(NoSuchElementException.class)));
+        }
+        verify(drivers.get(0)).quit();
+
+        GHAttachmentUploader.Session session = uploader.checkOut();
+        assertThat(session, is(not(nullValue())));
+        assertThat(drivers.size(), is(2));
+        verify(drivers.get(1), never()).quit();
+    }
+
+    @Test(timeout = 10000)
+    public void waitingThreadStartsSessionAfterDiscard() throws Exception {
+        uploader(1, 5);
+        GHAttachmentUploader.Session first = uploader.checkOut();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<GHAttachmentUploader.Session> waiting = executor.submit(uploader::checkOut);
+            Thread.sleep(200);
+            assertThat(waiting.isDone(), is(false));
+
+            uploader.discard(first);
+            GHAttachmentUploader.Session second = waiting.get(3, TimeUnit.SECONDS);
+            assertThat(second, is(not(first)));
+            assertThat(drivers.size(), is(2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
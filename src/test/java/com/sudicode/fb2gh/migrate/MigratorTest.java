@@ -5,6 +5,8 @@ import com.sudicode.fb2gh.fogbugz.FBCase;
 import com.sudicode.fb2gh.fogbugz.FogBugz;
 import com.sudicode.fb2gh.github.GHComment;
 import com.sudicode.fb2gh.github.GHIssue;
+import com.sudicode.fb2gh.github.GHIssueImport;
+import com.sudicode.fb2gh.github.GHIssueSpec;
 import com.sudicode.fb2gh.github.GHLabel;
 import com.sudicode.fb2gh.github.GHMilestone;
 import com.sudicode.fb2gh.github.GHRepo;
@@ -17,17 +19,22 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 
 /**
  * Unit tests for {@link Migrator}.
@@ -40,12 +47,20 @@ public class MigratorTest {
 
     @Before
     public void setUp() throws Exception {
-        Unmarshaller jaxb = JAXBContext.newInstance(Class.forName("com.sudicode.fb2gh.fogbugz.FBResponse")).createUnmarshaller();
         fogBugz = mock(FogBugz.class);
-        caseList = Reflect.on(jaxb.unmarshal(getClass().getResource("Cases.xml")))
+        caseList = loadCases();
+        ghRepo = new OfflineGHRepo();
+    }
+
+    /**
+     * @return The cases in <code>Cases.xml</code>
+     * @throws Exception if the file cannot be read
+     */
+    private List<FBCase> loadCases() throws Exception {
+        Unmarshaller jaxb = JAXBContext.newInstance(Class.forName("com.sudicode.fb2gh.fogbugz.FBResponse")).createUnmarshaller();
+        return Reflect.on(jaxb.unmarshal(getClass().getResource("Cases.xml")))
                 .call("getCases")
                 .get();
-        ghRepo = new OfflineGHRepo();
     }
 
     @Test
@@ -184,6 +199,146 @@ public class MigratorTest {
         }
     }
 
+    @Test
+    public void migrateByImport() throws Exception {
+        AtomicReference<GHIssueImport> imported = new AtomicReference<>();
+        GHRepo importingRepo = new OfflineGHRepo() {
+            @Override
+            public CompletableFuture<GHIssue> importIssue(final GHIssueImport issueImport) {
+                imported.set(issueImport);
+                return super.importIssue(issueImport);
+            }
+        };
+        AtomicBoolean postMigrate = new AtomicBoolean();
+        new Migrator.Builder(fogBugz, caseList, importingRepo)
+                .importIssues(true)
+                .afterMigrate((fbCase, ghIssue) -> postMigrate.set(true))
+                .build()
+                .migrate();
+
+        GHIssueImport issueImport = imported.get();
+        assertThat(issueImport.getTitle(), is(equalTo("Sample Bug")));
+        assertThat(issueImport.getCreatedAt(), is(equalTo(Date.from(Instant.parse("2007-06-27T16:37:13Z")))));
+        assertThat(issueImport.getComments(), hasSize(3));
+        assertThat(issueImport.getLabels(), contains(new GHLabel("bug")));
+        assertTrue(issueImport.isClosed());
+        assertThat(issueImport.getClosedAt(), is(equalTo(issueImport.getComments().get(2).getCreatedAt())));
+        assertTrue(postMigrate.get());
+
+        GHIssue issue = importingRepo.getIssue(1);
+        assertThat(issue.getComments(), hasSize(3));
+        assertTrue(issue.isClosed());
+    }
+
+    @Test
+    public void migrateWithUnassignableUser() throws Exception {
+        caseList.addAll(loadCases());
+        for (FBCase fbCase : caseList) {
+            Reflect.on(fbCase).set("open", true).set("assignee", "Alice Adams");
+        }
+        List<GHIssueSpec> specs = new ArrayList<>();
+        GHRepo strictRepo = new OfflineGHRepo() {
+            @Override
+            public GHIssue addIssue(final GHIssueSpec spec) throws FB2GHException {
+                specs.add(spec);
+                if (spec.getAssignees().contains("ghost")) {
+                    throw new FB2GHException("Validation Failed");
+                }
+                GHIssue issue = spy(super.addIssue(spec));
+                doThrow(new FB2GHException("Validation Failed")).when(issue).assignTo("ghost");
+                return issue;
+            }
+        };
+        List<Exception> exceptions = new ArrayList<>();
+        new Migrator.Builder(fogBugz, caseList, strictRepo)
+                .usernameMap(Collections.singletonMap("Alice Adams", "ghost"))
+                .exceptionHandler((fbCase, e) -> exceptions.add(e))
+                .build()
+                .migrate();
+
+        assertThat(exceptions, is(empty()));
+        assertThat(specs, hasSize(2));
+        assertThat(specs.get(0).getAssignees(), is(empty()));
+        assertThat(specs.get(1).getAssignees(), is(empty()));
+        assertThat(strictRepo.getIssue(2).getTitle(), is(equalTo("Sample Bug")));
+    }
+
+    @Test
+    public void migrateByImportWithUnassignableUser() throws Exception {
+        caseList.addAll(loadCases());
+        for (FBCase fbCase : caseList) {
+            Reflect.on(fbCase).set("open", true).set("assignee", "Alice Adams");
+        }
+        List<GHIssueImport> imports = new ArrayList<>();
+        GHRepo strictRepo = new OfflineGHRepo() {
+            @Override
+            public CompletableFuture<GHIssue> importIssue(final GHIssueImport issueImport) {
+                imports.add(issueImport);
+                if ("ghost".equals(issueImport.getAssignee())) {
+                    CompletableFuture<GHIssue> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new FB2GHException("Validation Failed"));
+                    return failed;
+                }
+                return super.importIssue(issueImport).thenApply(issue -> {
+                    GHIssue strictIssue = spy(issue);
+                    try {
+                        doThrow(new FB2GHException("Validation Failed")).when(strictIssue).assignTo("ghost");
+                    } catch (FB2GHException e) {
+                        throw new AssertionError(e);
+                    }
+                    return strictIssue;
+                });
+            }
+        };
+        List<Exception> exceptions = new ArrayList<>();
+        new Migrator.Builder(fogBugz, caseList, strictRepo)
+                .importIssues(true)
+                .usernameMap(Collections.singletonMap("Alice Adams", "ghost"))
+                .exceptionHandler((fbCase, e) -> exceptions.add(e))
+                .build()
+                .migrate();
+
+        assertThat(exceptions, is(empty()));
+        assertThat(imports, hasSize(2));
+        assertThat(imports.get(0).getAssignee(), is(nullValue()));
+        assertThat(imports.get(1).getAssignee(), is(nullValue()));
+        assertThat(strictRepo.getIssue(2).getComments(), hasSize(3));
+    }
+
+    @Test
+    public void migrateAssignsInCreateRequestOnceUserIsKnown() throws Exception {
+        caseList.addAll(loadCases());
+        for (FBCase fbCase : caseList) {
+            Reflect.on(fbCase).set("open", true).set("assignee", "Alice Adams");
+        }
+        List<GHIssueSpec> specs = new ArrayList<>();
+        GHRepo recordingRepo = new OfflineGHRepo() {
+            @Override
+            public GHIssue addIssue(final GHIssueSpec spec) throws FB2GHException {
+                specs.add(spec);
+                return super.addIssue(spec);
+            }
+        };
+        new Migrator.Builder(fogBugz, caseList, recordingRepo)
+                .usernameMap(Collections.singletonMap("Alice Adams", "octocat"))
+                .build()
+                .migrate();
+
+        assertThat(specs, hasSize(2));
+        assertThat(specs.get(0).getAssignees(), is(empty()));
+        assertThat(specs.get(1).getAssignees(), contains("octocat"));
+    }
+
+    @Test
+    public void migrateWithPrefetch() throws Exception {
+        new Migrator.Builder(fogBugz, caseList, ghRepo)
+                .prefetch(4)
+                .build()
+                .migrate();
+
+        assertThat(ghRepo.getIssue(1).getTitle(), is(equalTo("Sample Bug")));
+    }
+
     @Test
     public void migrateWithDateFormat() throws Exception {
         // Create a DateFormat